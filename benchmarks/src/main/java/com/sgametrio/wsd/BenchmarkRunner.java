@@ -0,0 +1,26 @@
+package com.sgametrio.wsd;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Run benchmarks with GC profiler, so allocation rate (gc.alloc.rate.norm: bytes per operation)
+ * is reported with throughput and average time.
+ * java -jar target/benchmarks.jar [JMH options, e.g. Expansion -p depth=3 -rf json]
+ * WordNet must be installed in Globals.wordnetHome
+ */
+public class BenchmarkRunner {
+
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		Options options = new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+}
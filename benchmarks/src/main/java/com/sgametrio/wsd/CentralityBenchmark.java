@@ -0,0 +1,57 @@
+package com.sgametrio.wsd;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import additional.KppClosenessCentrality;
+import evaluation.InputSentence;
+
+/**
+ * KppClosenessCentrality (Floyd-Warshall) and JExecutor closeness (breadth first search on reused buffers)
+ * on expanded graphs, expansion is done once in setup
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CentralityBenchmark {
+	@Param({"d000.s026", "d000.s009", "d002.s050"})
+	public String sentence;
+	@Param({"2", "3", "4"})
+	public int depth;
+	private JGraph graph;
+
+	@Setup
+	public void setup() throws IOException, XMLStreamException {
+		InputSentence input = Fixtures.sentence(this.sentence);
+		this.graph = Fixtures.executor().expandGraph(input, Fixtures.senses(input), this.depth).graph;
+	}
+
+	@Benchmark
+	public Map<JNode, Double> kppCloseness() {
+		return new KppClosenessCentrality<JNode, DefaultWeightedEdge>(this.graph).calculate().getRaw();
+	}
+
+	@Benchmark
+	public Map<JNode, Double> kppClosenessReused() {
+		return Fixtures.executor().computeKppClosenessCentrality(this.graph);
+	}
+}
@@ -0,0 +1,52 @@
+package com.sgametrio.wsd;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import evaluation.InputSentence;
+
+/**
+ * WordNet DFS expansion (computeDFS) of disambiguation nodes
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpansionBenchmark {
+	@Param({"d000.s026", "d000.s009", "d002.s050"})
+	public String sentence;
+	@Param({"2", "3", "4"})
+	public int depth;
+	private JExecutor executor;
+	private InputSentence input;
+	private ArrayList<JNode> senses;
+
+	@Setup
+	public void setup() throws IOException, XMLStreamException {
+		this.executor = Fixtures.executor();
+		this.input = Fixtures.sentence(this.sentence);
+		this.senses = Fixtures.senses(this.input);
+	}
+
+	@Benchmark
+	public ExpandedGraph computeDFS() {
+		return this.executor.expandGraph(this.input, this.senses, this.depth);
+	}
+}
@@ -0,0 +1,88 @@
+package com.sgametrio.wsd;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamException;
+
+import evaluation.InputSentence;
+import evaluation.StreamingInputExtractor;
+
+/**
+ * Checked-in fixtures (src/main/resources/fixtures) shared by benchmarks:
+ * sentences.data.xml has three semeval2007 sentences with 4 (d000.s026), 8 (d000.s009) and 16 (d002.s050) instances,
+ * semeval2007 gold and system key files are used to score.
+ * The executor (and so WordNet) is loaded once per fork
+ */
+class Fixtures {
+	static final String sentencesFile = "/fixtures/sentences.data.xml";
+	static final String goldFile = "/fixtures/semeval2007.gold.key.txt";
+	static final String systemFile = "/fixtures/semeval2007.system.key.txt";
+	private static JExecutor executor = null;
+	private static Map<String, InputSentence> sentences = null;
+
+	static {
+		// Measure computation, not logging
+		Globals.developmentLogs = false;
+		Globals.statisticsLogs = false;
+	}
+
+	static synchronized JExecutor executor() {
+		if (executor == null) {
+			executor = new JExecutor();
+		}
+		return executor;
+	}
+
+	/**
+	 * @param sentenceId
+	 * @return sentence of fixture file
+	 * @throws IOException
+	 * @throws XMLStreamException
+	 */
+	static synchronized InputSentence sentence(String sentenceId) throws IOException, XMLStreamException {
+		if (sentences == null) {
+			sentences = new HashMap<String, InputSentence>();
+			StreamingInputExtractor extractor = new StreamingInputExtractor(Fixtures.class.getResourceAsStream(sentencesFile));
+			while (extractor.hasNext()) {
+				InputSentence sentence = extractor.next();
+				sentences.put(sentence.sentenceId, sentence);
+			}
+			extractor.close();
+		}
+		InputSentence sentence = sentences.get(sentenceId);
+		if (sentence == null)
+			throw new IllegalArgumentException("No fixture sentence " + sentenceId);
+		return sentence;
+	}
+
+	/**
+	 * @param sentence
+	 * @return disambiguation nodes of sentence instances
+	 */
+	static ArrayList<JNode> senses(InputSentence sentence) {
+		JExecutor executor = executor();
+		return executor.getSensesFromInstances(executor.mySelectPos(sentence.instances));
+	}
+
+	/**
+	 * Copy resource to a temporary file, deleted on exit
+	 * @param resource
+	 * @return file
+	 * @throws IOException
+	 */
+	static File file(String resource) throws IOException {
+		File file = File.createTempFile("fixture", new File(resource).getName());
+		file.deleteOnExit();
+		InputStream in = Fixtures.class.getResourceAsStream(resource);
+		Files.copy(in, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		in.close();
+		return file;
+	}
+}
@@ -0,0 +1,74 @@
+package com.sgametrio.wsd;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import evaluation.InputSentence;
+
+/**
+ * GTSP instance creation from centrality (old createEdgesByCentrality) and its writing (JGraph.saveToGTSP).
+ * Disambiguation graph is built once in setup with closeness centrality
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GtspBenchmark {
+	@Param({"d000.s026", "d000.s009", "d002.s050"})
+	public String sentence;
+	@Param({"2", "3", "4"})
+	public int depth;
+	private JGraph graph;
+	private GtspInstance instance;
+	private File directory;
+
+	@Setup
+	public void setup() throws IOException, XMLStreamException {
+		JExecutor executor = Fixtures.executor();
+		InputSentence input = Fixtures.sentence(this.sentence);
+		ExpandedGraph expanded = executor.expandGraph(input, Fixtures.senses(input), this.depth);
+		Map<JNode, Double> scores = executor.scoreSenses(expanded, Globals.closenessCentrality);
+		this.graph = new JGraph(input.sentence, input.sentenceId);
+		executor.addScoredSenses(expanded, scores, this.graph);
+		this.instance = GtspInstance.fromCentrality(this.graph);
+		this.directory = Files.createTempDirectory("gtsp").toFile();
+	}
+
+	@TearDown
+	public void tearDown() {
+		for (File file : this.directory.listFiles()) {
+			file.delete();
+		}
+		this.directory.delete();
+	}
+
+	@Benchmark
+	public GtspInstance createEdgesByCentrality() {
+		return GtspInstance.fromCentrality(this.graph);
+	}
+
+	@Benchmark
+	public boolean saveToGTSP() {
+		return this.graph.saveToGTSP(this.instance, this.directory.getPath() + File.separator, this.sentence);
+	}
+}
@@ -0,0 +1,43 @@
+package com.sgametrio.wsd;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import evaluation.Scorer;
+
+/**
+ * Scoring of a whole dataset key file (semeval2007, 455 instances)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScorerBenchmark {
+	private File gold;
+	private File system;
+
+	@Setup
+	public void setup() throws IOException {
+		this.gold = Fixtures.file(Fixtures.goldFile);
+		this.system = Fixtures.file(Fixtures.systemFile);
+	}
+
+	@Benchmark
+	public Double[] score() throws IOException {
+		return Scorer.score(this.gold, this.system);
+	}
+}
@@ -0,0 +1,196 @@
+package com.sgametrio.wsd;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Confidence gating (Globals.confidenceGating): escalate to GTSP solver only clusters whose centrality winner
+ * doesn't lead the runner-up by Globals.confidenceThreshold, confident clusters are fixed to their winner
+ * before solving. Keeps gating statistics of its executor
+ */
+public class ConfidenceGate {
+	private final JExecutor executor;
+	private final AtomicInteger gatedInstances = new AtomicInteger();
+	private final AtomicInteger escalatedInstances = new AtomicInteger();
+	private final AtomicInteger fixedClusters = new AtomicInteger();
+	private final AtomicInteger gatedClusters = new AtomicInteger();
+	private final AtomicLong escalatedTime = new AtomicLong();
+	// Gated instances also solved without gating (Globals.gatingAuditRate)
+	private final AtomicInteger auditedInstances = new AtomicInteger();
+	private final AtomicLong auditGatedTime = new AtomicLong();
+	private final AtomicLong auditUngatedTime = new AtomicLong();
+	// run -> {term id, gated sense key, ungated sense key} of audited instances
+	private final Map<String, List<String[]>> audit = new ConcurrentHashMap<String, List<String[]>>();
+
+	/**
+	 * @param executor solves escalated instances
+	 */
+	ConfidenceGate(JExecutor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Disambiguate by TSP, escalating only not confident clusters.
+	 * Audited instances are also solved without gating, to measure what gating changes
+	 * @param dGraph
+	 * @param dFilename
+	 * @param centralityMap
+	 * @return map<cluster, sense>
+	 */
+	Map<Integer, JNode> disambiguate(JGraph dGraph, String dFilename, Map<Integer, JNode> centralityMap) {
+		JGraph ungated = null;
+		if (this.isAudited(dGraph)) {
+			ungated = this.executor.newGraph(dGraph.getSentence(), dGraph.getSentenceId());
+			// Own run name: its events are not read as events of the gated run
+			ungated.setConfiguration(dGraph.getRun() + "_ungated", dGraph.getDepth(), dGraph.getCentrality());
+			ungated.setRecordEvents(dGraph.isRecordingEvents());
+			for (JNode n : dGraph.vertexSet()) {
+				ungated.addVertex(n);
+			}
+		}
+		long before = System.nanoTime();
+		int[] confident = new int[1];
+		Map<Integer, JNode> gatedMap = this.gate(dGraph, dFilename, centralityMap, confident);
+		long gatedTime = System.nanoTime() - before;
+		if (ungated != null) {
+			Map<Integer, JNode> ungatedMap = gatedMap;
+			long ungatedTime = gatedTime;
+			if (confident[0] > 0) {
+				// Otherwise gated instance is the ungated one, solving it again would hit the solution cache
+				before = System.nanoTime();
+				ungatedMap = this.executor.disambiguateByTSP(ungated, dFilename + "_ungated", centralityMap);
+				ungatedTime = System.nanoTime() - before;
+			}
+			this.audit(dGraph.getRun(), gatedMap, ungatedMap);
+			this.auditedInstances.incrementAndGet();
+			this.auditGatedTime.addAndGet(gatedTime);
+			this.auditUngatedTime.addAndGet(ungatedTime);
+		}
+		return gatedMap;
+	}
+
+	/**
+	 * @param dGraph confident clusters are reduced to their winner
+	 * @param dFilename
+	 * @param centralityMap
+	 * @param confident set to number of confident clusters
+	 * @return map<cluster, sense>
+	 */
+	private Map<Integer, JNode> gate(JGraph dGraph, String dFilename, Map<Integer, JNode> centralityMap, int[] confident) {
+		Map<Integer, Set<JNode>> clusters = dGraph.getClusters();
+		for (Entry<Integer, Set<JNode>> cluster : clusters.entrySet()) {
+			if (confidenceMargin(cluster.getValue()) >= Globals.confidenceThreshold) {
+				confident[0]++;
+			}
+		}
+		this.gatedInstances.incrementAndGet();
+		this.gatedClusters.addAndGet(clusters.size());
+		if (confident[0] == clusters.size()) {
+			dGraph.log(Globals.logStatistics, "[GATING] all " + confident[0] + " clusters confident, solver not needed");
+			this.fixedClusters.addAndGet(confident[0]);
+			return centralityMap;
+		}
+		// Fix confident clusters to their winner
+		for (Entry<Integer, Set<JNode>> cluster : clusters.entrySet()) {
+			if (confidenceMargin(cluster.getValue()) >= Globals.confidenceThreshold) {
+				JNode winner = centralityMap.get(cluster.getKey());
+				for (JNode n : cluster.getValue()) {
+					if (n != winner) {
+						dGraph.removeVertex(n);
+					}
+				}
+			}
+		}
+		dGraph.log(Globals.logStatistics, "[GATING] escalated clusters " + (clusters.size() - confident[0]) + "/" + clusters.size());
+		this.escalatedInstances.incrementAndGet();
+		this.fixedClusters.addAndGet(confident[0]);
+		long before = System.nanoTime();
+		Map<Integer, JNode> disambiguationMap = this.executor.disambiguateByTSP(dGraph, dFilename, centralityMap);
+		this.escalatedTime.addAndGet(System.nanoTime() - before);
+		return disambiguationMap;
+	}
+
+	/**
+	 * @param graph
+	 * @return true if instance of graph is in the Globals.gatingAuditRate sample (by sentence and run)
+	 */
+	private boolean isAudited(JGraph graph) {
+		return JExecutor.sampled(graph.getSentenceId() + graph.getRun(), Globals.gatingAuditRate);
+	}
+
+	private void audit(String run, Map<Integer, JNode> gatedMap, Map<Integer, JNode> ungatedMap) {
+		if (gatedMap == null || ungatedMap == null)
+			return;
+		List<String[]> terms = this.audit.get(run);
+		if (terms == null) {
+			this.audit.putIfAbsent(run, new CopyOnWriteArrayList<String[]>());
+			terms = this.audit.get(run);
+		}
+		for (Entry<Integer, JNode> term : gatedMap.entrySet()) {
+			JNode ungatedSense = ungatedMap.get(term.getKey());
+			if (ungatedSense != null) {
+				terms.add(new String[] {term.getValue().getTermId(), term.getValue().getSenseKey(), ungatedSense.getSenseKey()});
+			}
+		}
+	}
+
+	/**
+	 * @param cluster senses of the same term
+	 * @return (best - runner-up) / best centrality, 1 for single-sense clusters
+	 */
+	static double confidenceMargin(Set<JNode> cluster) {
+		if (cluster.size() < 2)
+			return 1.0;
+		double best = Double.NEGATIVE_INFINITY;
+		double second = Double.NEGATIVE_INFINITY;
+		for (JNode n : cluster) {
+			double centrality = n.getCentrality();
+			if (centrality > best) {
+				second = best;
+				best = centrality;
+			} else if (centrality > second) {
+				second = centrality;
+			}
+		}
+		if (best <= 0.0)
+			return 0.0;
+		return (best - second) / best;
+	}
+
+	/**
+	 * @return escalation rate, fixed clusters and time saved, estimated on audited instances (Globals.gatingAuditRate)
+	 */
+	public String getStatistics() {
+		int gated = this.gatedInstances.get();
+		int escalated = this.escalatedInstances.get();
+		if (gated == 0)
+			return "[GATING] no instance gated";
+		String statistics = "[GATING] escalated instances " + escalated + "/" + gated
+				+ " (" + String.format("%.2f", 100.0 * escalated / gated) + "%)"
+				+ " fixed clusters " + this.fixedClusters.get() + "/" + this.gatedClusters.get()
+				+ " solver time " + Duration.ofNanos(this.escalatedTime.get());
+		int audited = this.auditedInstances.get();
+		if (audited == 0)
+			return statistics + ", no audited instance: time saved not measured";
+		Duration gatedTime = Duration.ofNanos(this.auditGatedTime.get());
+		Duration ungatedTime = Duration.ofNanos(this.auditUngatedTime.get());
+		// Audited instances are a sample of all gated ones
+		Duration saved = ungatedTime.minus(gatedTime).dividedBy(audited).multipliedBy(gated);
+		return statistics + ", audited instances " + audited + " gated time " + gatedTime + " ungated time " + ungatedTime
+				+ " estimated time saved " + saved;
+	}
+
+	/**
+	 * @return run -> {term id, gated sense key, ungated sense key} of every term of audited instances
+	 */
+	public Map<String, List<String[]>> getAudit() {
+		return this.audit;
+	}
+}
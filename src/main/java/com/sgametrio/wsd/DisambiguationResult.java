@@ -0,0 +1,162 @@
+package com.sgametrio.wsd;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Senses chosen for one sentence by one configuration (depth, centrality, method), with timings
+ */
+public class DisambiguationResult {
+	private final String sentenceId;
+	private final int depth;
+	private final String centrality;
+	private final String method;
+	// sentence index -> chosen sense, only instances to evaluate (with an id)
+	private final SortedMap<Integer, JNode> senses = new TreeMap<Integer, JNode>();
+	private final Duration expansionTime;
+	private final Duration centralityTime;
+	private final Duration disambiguationTime;
+	private int solverTimeouts = 0;
+
+	/**
+	 * @param sentenceId
+	 * @param depth
+	 * @param centrality
+	 * @param method Globals.byCentralityMethod or Globals.runSolverMethod
+	 * @param map sentence index -> chosen sense, may be null if nothing was disambiguated
+	 * @param expansionTime time spent by DFS
+	 * @param centralityTime time spent computing centrality
+	 * @param disambiguationTime time spent choosing senses (solver included)
+	 */
+	public DisambiguationResult(String sentenceId, int depth, String centrality, String method, Map<Integer, JNode> map,
+			Duration expansionTime, Duration centralityTime, Duration disambiguationTime) {
+		this.sentenceId = sentenceId;
+		this.depth = depth;
+		this.centrality = centrality;
+		this.method = method;
+		if (map != null) {
+			for (Map.Entry<Integer, JNode> entry : map.entrySet()) {
+				if (entry.getValue().getTermId() != null) {
+					this.senses.put(entry.getKey(), entry.getValue());
+				}
+			}
+		}
+		this.expansionTime = expansionTime;
+		this.centralityTime = centralityTime;
+		this.disambiguationTime = disambiguationTime;
+	}
+
+	/**
+	 * @param centrality
+	 * @param depth
+	 * @param method Globals.byCentralityMethod or Globals.runSolverMethod
+	 * @return configuration name: <centrality>_<depth>_<method>
+	 */
+	public static String configuration(String centrality, int depth, String method) {
+		return centrality + "_" + depth + "_" + method;
+	}
+
+	/**
+	 * @param centrality
+	 * @param depth
+	 * @param method Globals.byCentralityMethod or Globals.runSolverMethod
+	 * @return run name, same of key files and graph events: <dataset>_<centrality>_<depth>_<method>
+	 */
+	public static String run(String centrality, int depth, String method) {
+		return Globals.currentDataset + "_" + configuration(centrality, depth, method);
+	}
+
+	/**
+	 * @return configuration name: <centrality>_<depth>_<method>
+	 */
+	public String getConfiguration() {
+		return configuration(centrality, depth, method);
+	}
+
+	/**
+	 * @return run name: <dataset>_<centrality>_<depth>_<method>
+	 */
+	public String getRun() {
+		return run(centrality, depth, method);
+	}
+
+	/**
+	 * @return instance id -> sense key, in sentence order
+	 */
+	public Map<String, String> getSenseKeys() {
+		Map<String, String> keys = new LinkedHashMap<String, String>();
+		for (JNode v : senses.values()) {
+			keys.put(v.getTermId(), v.getSenseKey());
+		}
+		return keys;
+	}
+
+	/**
+	 * @return instance id -> centrality of chosen sense, in sentence order
+	 */
+	public Map<String, Double> getScores() {
+		Map<String, Double> scores = new LinkedHashMap<String, Double>();
+		for (JNode v : senses.values()) {
+			scores.put(v.getTermId(), v.getCentrality());
+		}
+		return scores;
+	}
+
+	/**
+	 * @return sentence index -> chosen sense
+	 */
+	public SortedMap<Integer, JNode> getSenses() {
+		return senses;
+	}
+
+	public String getSentenceId() {
+		return sentenceId;
+	}
+
+	public int getDepth() {
+		return depth;
+	}
+
+	public String getCentrality() {
+		return centrality;
+	}
+
+	public String getMethod() {
+		return method;
+	}
+
+	public Duration getExpansionTime() {
+		return expansionTime;
+	}
+
+	public Duration getCentralityTime() {
+		return centralityTime;
+	}
+
+	public Duration getDisambiguationTime() {
+		return disambiguationTime;
+	}
+
+	public Duration getTotalTime() {
+		return expansionTime.plus(centralityTime).plus(disambiguationTime);
+	}
+
+	/**
+	 * @return solver runs stopped by Globals.solverTimeLimit
+	 */
+	public int getSolverTimeouts() {
+		return solverTimeouts;
+	}
+
+	/**
+	 * @param solverTimeouts
+	 * @return this result
+	 */
+	DisambiguationResult setSolverTimeouts(int solverTimeouts) {
+		this.solverTimeouts = solverTimeouts;
+		return this;
+	}
+}
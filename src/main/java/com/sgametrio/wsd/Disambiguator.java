@@ -0,0 +1,90 @@
+package com.sgametrio.wsd;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import evaluation.InputSentence;
+
+/**
+ * Library entry point: disambiguates sentences in memory and returns results.
+ * Dictionary is loaded once by the constructor, instances are thread safe.
+ * Nothing is kept on disk unless a sink is added (e.g. KeyFileSink): graph events are not logged,
+ * GTSP exchange files of the solver are deleted when the call returns.
+ */
+public class Disambiguator implements Closeable {
+	private final JExecutor ex;
+	private final List<ResultSink> sinks = new ArrayList<ResultSink>();
+
+	public Disambiguator() {
+		this(new WordnetAdapter());
+	}
+
+	/**
+	 * @param wordnet dictionary, closed with this disambiguator
+	 */
+	public Disambiguator(WordnetAdapter wordnet) {
+		this.ex = new JExecutor(wordnet);
+		this.ex.createDir(Globals.gtspPath);
+		this.ex.createDir(Globals.tourPath);
+	}
+
+	/**
+	 * @param sink receives every result, closed with this disambiguator
+	 * @return this
+	 */
+	public Disambiguator addSink(ResultSink sink) {
+		this.sinks.add(sink);
+		this.ex.addSink(sink);
+		return this;
+	}
+
+	/**
+	 * Disambiguate with default configuration (Globals.nodesDepth, Globals.computeCentrality, solver if Globals.runSolver)
+	 * @param sentence
+	 * @return result
+	 */
+	public DisambiguationResult disambiguate(InputSentence sentence) {
+		return this.disambiguate(sentence, Globals.nodesDepth, Globals.computeCentrality,
+				Globals.runSolver ? Globals.runSolverMethod : Globals.byCentralityMethod);
+	}
+
+	/**
+	 * @param sentence
+	 * @param depth DFS depth of auxiliary nodes
+	 * @param centrality one of Globals centralities
+	 * @param method Globals.byCentralityMethod or Globals.runSolverMethod
+	 * @return result
+	 * @throws IllegalArgumentException if configuration is not valid
+	 */
+	public DisambiguationResult disambiguate(InputSentence sentence, int depth, String centrality, String method) {
+		if (depth < 0 || !isKnownCentrality(centrality) || !isKnownMethod(method)) {
+			throw new IllegalArgumentException("Bad configuration: depth " + depth + " centrality " + centrality + " method " + method);
+		}
+		return this.ex.disambiguate(sentence, depth, centrality, method);
+	}
+
+	public static boolean isKnownCentrality(String centrality) {
+		for (String c : Globals.centralities) {
+			if (c.equals(centrality))
+				return true;
+		}
+		return Globals.kppBellmanFordCentrality.equals(centrality);
+	}
+
+	public static boolean isKnownMethod(String method) {
+		return Globals.byCentralityMethod.equals(method) || Globals.runSolverMethod.equals(method);
+	}
+
+	/**
+	 * Close sinks and dictionary
+	 */
+	@Override
+	public void close() throws IOException {
+		for (ResultSink sink : this.sinks) {
+			sink.close();
+		}
+		this.ex.closeDictionary();
+	}
+}
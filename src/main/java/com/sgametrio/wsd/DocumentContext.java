@@ -0,0 +1,77 @@
+package com.sgametrio.wsd;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import edu.mit.jwi.item.IWord;
+
+/**
+ * WordNet lookups of the sentences of one document (Globals.documentScope): senses of a lemma and
+ * related words of a sense are read once and reused by the next sentences, which share many lemmas.
+ * Used by all configurations of a sentence at the same time, released at the end of the document.
+ * Returned lists are shared and must not be modified
+ */
+public class DocumentContext {
+	private final String documentId;
+	private final Map<String, List<IWord>> senses = new ConcurrentHashMap<String, List<IWord>>();
+	private final Map<IWord, List<IWord>> related = new ConcurrentHashMap<IWord, List<IWord>>();
+
+	public DocumentContext(String documentId) {
+		this.documentId = documentId;
+	}
+
+	/**
+	 * @param sentenceId <document id>.s<n>
+	 * @return document id, sentence id if it has no document
+	 */
+	public static String documentId(String sentenceId) {
+		int dot = sentenceId.lastIndexOf('.');
+		return dot > 0 ? sentenceId.substring(0, dot) : sentenceId;
+	}
+
+	public String getDocumentId() {
+		return documentId;
+	}
+
+	/**
+	 * @see WordnetAdapter#getWordsList(String, String)
+	 */
+	public List<IWord> getWordsList(WordnetAdapter wordnet, String lemma, String pos) {
+		String key = lemma + "#" + pos;
+		List<IWord> words = this.senses.get(key);
+		if (words == null) {
+			words = wordnet.getWordsList(lemma, pos);
+			this.senses.put(key, words);
+			Metrics.counter("document.misses").increment();
+		} else {
+			Metrics.counter("document.hits").increment();
+		}
+		return words;
+	}
+
+	/**
+	 * @see WordnetAdapter#getAllRelatedWords(IWord)
+	 */
+	public List<IWord> getAllRelatedWords(WordnetAdapter wordnet, IWord word) {
+		List<IWord> words = this.related.get(word);
+		if (words == null) {
+			// Two configurations may read the same word, both results are equal
+			words = wordnet.getAllRelatedWords(word);
+			this.related.put(word, words);
+			Metrics.counter("document.misses").increment();
+		} else {
+			Metrics.counter("document.hits").increment();
+		}
+		return words;
+	}
+
+	/**
+	 * End of document: forget lookups
+	 */
+	public void release() {
+		Metrics.size("document.words").record(this.related.size());
+		this.senses.clear();
+		this.related.clear();
+	}
+}
@@ -0,0 +1,376 @@
+package com.sgametrio.wsd;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Structured event log: one JSON object per line, written by a single background thread to
+ * Globals.logsPath/events_<run start>_<n>.jsonl, a new file is started every Globals.logFileMaxBytes.
+ * {"time":"2017-10-20T10:00:00Z","level":"statistics","run":"<dataset>_<centrality>_<depth>_<method>","sentence":"d000.s000","message":"..."}
+ * Callers check isEnabled (JGraph.log does) so messages of disabled levels are never built.
+ */
+public class EventLogger {
+	private static final String runId = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+	private static final String END = "";
+	private static BlockingQueue<String> queue = null;
+	private static Thread writer = null;
+	private static boolean shutdownHookAdded = false;
+	// Resuming or merging shards: event files of other runs -> journal of the units whose events are read
+	private static final Map<File, ProgressJournal> previousFiles = new LinkedHashMap<File, ProgressJournal>();
+	// Event files of other runs -> logs path of their session
+	private static final Map<File, String> previousSessions = new HashMap<File, String>();
+	// run -> sentence id -> messages of all event files, built by a single scan and rebuilt when files change
+	private static Map<String, Map<String, String>> messagesByRun = null;
+	// Total length of this run event files when messagesByRun was built
+	private static long indexedLength = -1;
+
+	/**
+	 * @param severity one of Globals log levels
+	 * @return true if events of severity are recorded: all with developmentLogs, statistics
+	 * if statisticsLogs (needed by ExtendedScorer), severe always
+	 */
+	public static boolean isEnabled(int severity) {
+		if (Globals.developmentLogs || severity == Globals.logSevere)
+			return true;
+		return severity == Globals.logStatistics && Globals.statisticsLogs;
+	}
+
+	/**
+	 * Enqueue an event, blocks only if Globals.logQueueSize events are waiting to be written
+	 * @param severity
+	 * @param run configuration (key file name) or empty
+	 * @param sentenceId
+	 * @param message
+	 */
+	public static void log(int severity, String run, String sentenceId, String message) {
+		StringBuilder line = new StringBuilder(message.length() + 128);
+		line.append("{\"time\":\"").append(Instant.now())
+			.append("\",\"level\":\"").append(levelName(severity))
+			.append("\",\"run\":\"").append(escape(run))
+			.append("\",\"sentence\":\"").append(escape(sentenceId))
+			.append("\",\"message\":\"").append(escape(message)).append("\"}\n");
+		BlockingQueue<String> events = start();
+		try {
+			events.put(line.toString());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Write all queued events and stop writer, a new writer is started by next event
+	 */
+	public static synchronized void close() {
+		if (writer == null)
+			return;
+		try {
+			queue.put(END);
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		writer = null;
+	}
+
+	private static synchronized BlockingQueue<String> start() {
+		if (writer == null) {
+			queue = new LinkedBlockingQueue<String>(Globals.logQueueSize);
+			writer = new Thread(new EventWriter(queue), "event-logger");
+			writer.setDaemon(true);
+			writer.start();
+			if (!shutdownHookAdded) {
+				shutdownHookAdded = true;
+				Runtime.getRuntime().addShutdownHook(new Thread("event-logger-shutdown") {
+					@Override
+					public void run() {
+						EventLogger.close();
+					}
+				});
+			}
+		}
+		return queue;
+	}
+
+	/**
+	 * @return event files of this run, in writing order
+	 */
+	public static List<File> files() {
+		List<File> files = new ArrayList<File>();
+		for (int n = 0; file(n).exists(); n++) {
+			files.add(file(n));
+		}
+		return files;
+	}
+
+	/**
+	 * Read also events of the runs resumed by journal: events of a unit are read only from the session
+	 * that journaled it, events of units a session hasn't finished are ignored (those units are computed
+	 * again by a later session, or by this run).
+	 * Called once per journal, also with journals of shards when merging them
+	 * @param journal
+	 */
+	public static synchronized void includePreviousRuns(ProgressJournal journal) {
+		for (String logs : journal.getPreviousLogs()) {
+			File[] events = new File(logs).listFiles();
+			if (logs.equals(Globals.logsPath) || events == null)
+				continue;
+			List<File> runFiles = new ArrayList<File>();
+			for (File file : events) {
+				if (file.getName().startsWith("events_") && file.getName().endsWith(".jsonl")) {
+					runFiles.add(file);
+				}
+			}
+			// Rotated files in writing order
+			Collections.sort(runFiles, new Comparator<File>() {
+				@Override
+				public int compare(File f1, File f2) {
+					return Long.compare(f1.lastModified(), f2.lastModified());
+				}
+			});
+			for (File file : runFiles) {
+				previousFiles.put(file, journal);
+				previousSessions.put(file, logs);
+			}
+		}
+		messagesByRun = null;
+	}
+
+	/**
+	 * Messages of a configuration grouped by sentence, each message followed by a new line
+	 * (same content of old per sentence log files)
+	 * @param run configuration
+	 * @return sentence id -> messages
+	 */
+	public static synchronized Map<String, String> readMessages(String run) {
+		List<File> runFiles = files();
+		long length = 0;
+		for (File file : runFiles) {
+			length += file.length();
+		}
+		if (messagesByRun == null || length != indexedLength) {
+			messagesByRun = index(runFiles);
+			indexedLength = length;
+		}
+		Map<String, String> messages = messagesByRun.get(run);
+		return messages == null ? new HashMap<String, String>() : messages;
+	}
+
+	/**
+	 * Read every event file once, events of previous runs only if their session journaled the unit
+	 * @param runFiles event files of this run
+	 * @return run -> sentence id -> messages
+	 */
+	private static Map<String, Map<String, String>> index(List<File> runFiles) {
+		Map<String, Map<String, StringBuilder>> messages = new HashMap<String, Map<String, StringBuilder>>();
+		Map<File, ProgressJournal> files = new LinkedHashMap<File, ProgressJournal>(previousFiles);
+		for (File file : runFiles) {
+			files.put(file, null);
+		}
+		for (Map.Entry<File, ProgressJournal> entry : files.entrySet()) {
+			File file = entry.getKey();
+			ProgressJournal units = entry.getValue();
+			try {
+				BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+				String line;
+				while ((line = reader.readLine()) != null) {
+					String run = field(line, "run");
+					String sentence = field(line, "sentence");
+					if (units != null && !previousSessions.get(file).equals(units.getSession(sentence, run)))
+						continue;
+					Map<String, StringBuilder> sentences = messages.get(run);
+					if (sentences == null) {
+						sentences = new HashMap<String, StringBuilder>();
+						messages.put(run, sentences);
+					}
+					if (!sentences.containsKey(sentence)) {
+						sentences.put(sentence, new StringBuilder());
+					}
+					sentences.get(sentence).append(field(line, "message")).append('\n');
+				}
+				reader.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		Map<String, Map<String, String>> result = new HashMap<String, Map<String, String>>();
+		for (Map.Entry<String, Map<String, StringBuilder>> run : messages.entrySet()) {
+			Map<String, String> sentences = new HashMap<String, String>();
+			for (Map.Entry<String, StringBuilder> entry : run.getValue().entrySet()) {
+				sentences.put(entry.getKey(), entry.getValue().toString());
+			}
+			result.put(run.getKey(), sentences);
+		}
+		return result;
+	}
+
+	private static File file(int n) {
+		return new File(Globals.logsPath + "events_" + runId + "_" + n + ".jsonl");
+	}
+
+	private static String levelName(int severity) {
+		switch (severity) {
+			case Globals.logInfo:
+				return "info";
+			case Globals.logStatistics:
+				return "statistics";
+			case Globals.logWarning:
+				return "warning";
+			case Globals.logSevere:
+				return "severe";
+			default:
+				return String.valueOf(severity);
+		}
+	}
+
+	/**
+	 * @param line event
+	 * @param name
+	 * @return unescaped value of string field
+	 */
+	private static String field(String line, String name) {
+		int start = line.indexOf("\"" + name + "\":\"") + name.length() + 4;
+		StringBuilder value = new StringBuilder();
+		for (int i = start; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (c == '"')
+				break;
+			if (c == '\\') {
+				char next = line.charAt(++i);
+				switch (next) {
+					case 'n': value.append('\n'); break;
+					case 'r': value.append('\r'); break;
+					case 't': value.append('\t'); break;
+					case 'u': value.append((char) Integer.parseInt(line.substring(i + 1, i + 5), 16)); i += 4; break;
+					default: value.append(next);
+				}
+			} else {
+				value.append(c);
+			}
+		}
+		return value.toString();
+	}
+
+	/**
+	 * @param s
+	 * @return length of s encoded in UTF-8, without encoding it
+	 */
+	static long utf8Length(String s) {
+		long length = 0;
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c < 0x80) {
+				length++;
+			} else if (c < 0x800) {
+				length += 2;
+			} else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+				length += 4;
+				i++;
+			} else {
+				length += 3;
+			}
+		}
+		return length;
+	}
+
+	private static String escape(String s) {
+		if (s == null)
+			return "";
+		StringBuilder escaped = new StringBuilder(s.length());
+		for (char c : s.toCharArray()) {
+			switch (c) {
+				case '"': escaped.append("\\\""); break;
+				case '\\': escaped.append("\\\\"); break;
+				case '\n': escaped.append("\\n"); break;
+				case '\r': escaped.append("\\r"); break;
+				case '\t': escaped.append("\\t"); break;
+				default:
+					if (c < 0x20) {
+						escaped.append(String.format("\\u%04x", (int) c));
+					} else {
+						escaped.append(c);
+					}
+			}
+		}
+		return escaped.toString();
+	}
+
+	/**
+	 * Drains queue in batches, rotating files by size
+	 */
+	private static class EventWriter implements Runnable {
+		private final BlockingQueue<String> events;
+
+		EventWriter(BlockingQueue<String> events) {
+			this.events = events;
+		}
+
+		@Override
+		public void run() {
+			List<String> batch = new ArrayList<String>();
+			int n = files().size();
+			Writer out = null;
+			long written = 0;
+			try {
+				new File(Globals.logsPath).mkdirs();
+				boolean end = false;
+				while (!end) {
+					batch.add(events.take());
+					events.drainTo(batch);
+					for (String event : batch) {
+						if (event == END) {
+							end = true;
+							break;
+						}
+						if (out == null || written >= Globals.logFileMaxBytes) {
+							if (out != null) {
+								out.close();
+								n++;
+							}
+							File file = file(n);
+							written = file.length();
+							out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+						}
+						out.write(event);
+						written += utf8Length(event);
+					}
+					if (out != null) {
+						out.flush();
+					}
+					batch.clear();
+				}
+			} catch (IOException e) {
+				e.printStackTrace();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				if (out != null) {
+					try {
+						out.close();
+					} catch (IOException e) {
+						e.printStackTrace();
+					}
+				}
+			}
+		}
+	}
+}
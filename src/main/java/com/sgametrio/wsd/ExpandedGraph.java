@@ -0,0 +1,23 @@
+package com.sgametrio.wsd;
+
+import java.time.Duration;
+import java.util.ArrayList;
+
+/**
+ * Graph expanded by DFS at a given depth, shared (read only) by all centralities of a sentence
+ */
+public class ExpandedGraph {
+	public final JGraph graph;
+	// disambiguation nodes, same order of instances
+	public final ArrayList<JNode> senses;
+	public final int depth;
+	// time spent by expansion
+	public final Duration time;
+
+	public ExpandedGraph(JGraph graph, ArrayList<JNode> senses, int depth, Duration time) {
+		this.graph = graph;
+		this.senses = senses;
+		this.depth = depth;
+		this.time = time;
+	}
+}
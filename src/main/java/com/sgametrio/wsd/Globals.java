@@ -3,12 +3,16 @@ package com.sgametrio.wsd;
 import java.io.File;
 
 public class Globals {
+	/**
+	 * Prefix of results, logs, GML and costs paths (system property wsd.output, e.g. SHARDS/shard-0/), empty by default
+	 */
+	public static final String outputPath = System.getProperty("wsd.output", "");
 	public static final String frameworkFilePath = "src/main/resources/evaluation-datasets/";
 	
 	public static final String wordnetHome = "/usr/local/WordNet-3.0";//path to WordNet home folder
 	public static final String path = wordnetHome + File.separator + "dict";
 	
-	public static final String resultsPath = "RESULTS/";
+	public static final String resultsPath = outputPath + "RESULTS/";
 	public static final String resultsExt = "_eval.KEY";	
 	
 	public static final String All = "ALL";
@@ -62,6 +66,49 @@ public class Globals {
 	public static float dampingFactor = (float)1;
 
 	public static boolean useAdditionalInstances = true;	
+
+	// Sentences read from dataset waiting for a free thread (reader blocks when full)
+	public static int sentenceQueueSize = 16;
+	/**
+	 * Run every sentence on its own virtual thread (JDK 21+, falls back to fixed thread pool).
+	 * At most virtualSentences sentences run at the same time, CPU-heavy stages (graph expansion,
+	 * centrality and solver processes, portfolio members included) are bounded by cpuPermits
+	 * (0 = available processors) in every mode
+	 */
+	public static boolean useVirtualThreads = false;
+	public static int virtualSentences = 256;
+	public static int cpuPermits = 0;
+
+	/**
+	 * Sentences scheduling: fifo submits sentences in dataset order while reading them,
+	 * largest-first reads all sentences and submits them by estimated cost on a work-stealing pool.
+	 * Costs measured by every run are saved to costProfileFile (not deleted by clearOldFiles)
+	 */
+	public static final String fifoScheduling = "fifo";
+	public static final String largestFirstScheduling = "largest-first";
+	public static String scheduling = fifoScheduling;
+	/**
+	 * Sentences of a document (sentence id without its last part, e.g. d000 of d000.s012) are disambiguated
+	 * in order by one worker, sharing a DocumentContext: senses and related words are read once per document.
+	 * Documents are scheduled (and sharded) instead of sentences, largest-first orders them by total cost
+	 */
+	public static boolean documentScope = false;
+	public static final String costProfileFile = outputPath + "COSTS/" + currentDataset + ".profile";
+
+	/**
+	 * Run (depth, centrality) configurations of a sentence as separate tasks on configurationThreads
+	 * threads (0 = available processors). Expanded graphs are shared between centralities of the same depth
+	 */
+	public static boolean parallelConfigurations = true;
+	public static int configurationThreads = 0;
+
+	/**
+	 * Sentences with more than windowThreshold selected instances (0 = never) are split in windows of
+	 * windowSize instances overlapping by windowOverlap, disambiguated in parallel and reconciled (SentenceWindows)
+	 */
+	public static int windowThreshold = 0;
+	public static int windowSize = 16;
+	public static int windowOverlap = 4;
 	
 	public static final String pathToDataset = frameworkFilePath + currentDataset + "/" + currentDataset;
 
@@ -82,8 +129,8 @@ public class Globals {
 	public static final String tspSolverFileName = "runGLKH";
 	public static final String tspSolverPathFileName = tspSolverHomeDir + tspSolverFileName;
 	
-	public static final String gmlPath = "GML/";
-	public static final String logsPath = "logs/" + new java.util.Date().toString() + "/";
+	public static final String gmlPath = outputPath + "GML/";
+	public static final String logsPath = outputPath + "logs/" + new java.util.Date().toString() + "/";
 	public static final String gtspPath = tspSolverPathToGTSPLIB;
 	public static final String tourPath = tspSolverPathToGTOURS;
 	public static final String piFilesPath = tspSolverHomeDir + piFiles;
@@ -92,6 +139,17 @@ public class Globals {
 	public static final int logStatistics = 0;
 	public static final int logWarning = 1;
 	public static final int logSevere = 2;
+	/**
+	 * Events are written by EventLogger to rotating JSON lines files in logsPath.
+	 * Statistics events are read back by ExtendedScorer, other levels need developmentLogs
+	 */
+	public static boolean statisticsLogs = true;
+	public static int logQueueSize = 65536;
+	public static long logFileMaxBytes = 64L * 1024 * 1024;
+	/**
+	 * Emit flight recorder events around disambiguation stages (see Tracing)
+	 */
+	public static boolean traceEvents = true;
 	
 	public static final String fileName = currentDataset;
 	
@@ -101,4 +159,123 @@ public class Globals {
 	 * Configurable solver runs
 	 */
 	public static final int runs = 1;
+	/**
+	 * Solver time limit in seconds for every instance (0 for no limit).
+	 * Solver gets TIME_LIMIT and returns best tour found so far, it is killed after the grace period.
+	 * Off by default: limited runs may change results of large instances
+	 */
+	public static int solverTimeLimit = 0;
+	public static int solverKillGrace = 5;
+	/**
+	 * Solver portfolio: portfolioSize runs with seeds solverSeed, solverSeed + 1, ... solve the same
+	 * instance at the same time and the shortest tour wins. Remaining runs are cancelled as soon as
+	 * a tour not longer than portfolioTargetLength is found (0 to wait for all of them)
+	 */
+	public static int solverSeed = 1;
+	public static int portfolioSize = 1;
+	public static long portfolioTargetLength = 0;
+
+	/**
+	 * Confidence gating: clusters whose best sense leads the runner-up by at least
+	 * confidenceThreshold (relative margin) are fixed to the centrality winner,
+	 * solver runs only if at least one cluster is below threshold
+	 */
+	public static boolean confidenceGating = false;
+	public static double confidenceThreshold = 0.1;
+	/**
+	 * Fraction of gated instances (sampled by sentence and configuration) also solved without gating:
+	 * F1 and solver time of gated against ungated TSP are reported on them (single process runs only)
+	 */
+	public static double gatingAuditRate = 0.1;
+
+	/**
+	 * GTSP solutions cache, keyed by a hash of distance matrix and clusters layout.
+	 * Disk tier is kept between executions (clearOldFiles doesn't touch it).
+	 * Memory tier keeps at most solutionCacheSize tours (least recently used are dropped), 0 for no limit
+	 */
+	public static boolean useSolutionCache = true;
+	public static boolean diskSolutionCache = false;
+	public static final String solutionCachePath = "CACHE/";
+	public static int solutionCacheSize = 10000;
+
+	/**
+	 * Instances with more vertexes than threshold keep only the k nearest vertexes
+	 * of other clusters for every vertex, other distances are set to sparseDistance.
+	 * Instance files are still full matrices (GLKH reads EXPLICIT FULL_MATRIX only): sparsifying
+	 * narrows the solver search, it doesn't reduce instance I/O.
+	 * A sparseAuditRate sample of sparsified instances is also solved dense, the tour length increase is logged
+	 */
+	public static int sparseInstanceThreshold = 200;
+	public static int sparseNeighbours = 10;
+	public static final int sparseDistance = precision * 10;
+	public static double sparseAuditRate = 0.1;
+
+	/**
+	 * GTSP instance reduction: remove senses dominated by another sense of the same cluster
+	 * (and duplicates), optionally keep only maxSensesPerCluster senses by centrality (0 = all)
+	 */
+	public static boolean eliminateDominatedSenses = false;
+	public static int maxSensesPerCluster = 0;
+
+	/**
+	 * Disambiguation server (WsdServer): port and request threads (0 = available processors)
+	 */
+	public static int serverPort = 8080;
+	public static int serverThreads = 0;
+
+	/**
+	 * Disambiguation methods, also suffix of key files
+	 */
+	public static final String byCentralityMethod = "by-centrality";
+	public static final String runSolverMethod = "run-solver";
+	/**
+	 * Solver files of single sentence disambiguations (Disambiguator) are named apiPrefix + process id
+	 * + call number, they are deleted when the call returns
+	 */
+	public static final String apiPrefix = "api_";
+
+	/**
+	 * Key files writers write at most resultBatchSize results between two flushes
+	 */
+	public static int resultBatchSize = 256;
+
+	/**
+	 * Finished (sentence, depth, centrality, method) units are recorded in journalFile. Resuming
+	 * (WsdLauncher --resume) keeps previous results, skips journaled units and appends the missing ones
+	 */
+	public static boolean resume = false;
+	public static final String journalFile = resultsPath + currentDataset + ".journal";
+
+	/**
+	 * Sharded runs: WsdLauncher --shards N starts N local worker processes (WsdLauncher --shard i/N),
+	 * worker i disambiguates sentences whose id hash is i modulo N and writes to shardsPath/shard-i/.
+	 * Results and statistics are then merged into the files a single process writes.
+	 * Workers can also be started by hand (on hosts sharing the filesystem) and merged with --merge N
+	 */
+	public static int shardIndex = 0;
+	public static int shardCount = 1;
+	public static final String shardsPath = "SHARDS/";
+
+	/**
+	 * Synthetic WordNet-like lexicon (SyntheticWordnet) for machines without WordNet: total lemmas,
+	 * mean senses per lemma, mean related synsets per synset and exponent of their power-law distribution
+	 */
+	public static int syntheticLemmas = 20000;
+	public static double syntheticPolysemy = 2.0;
+	public static double syntheticRelations = 6.0;
+	public static double syntheticDegreeExponent = 2.5;
+	public static long syntheticSeed = 1;
+	/**
+	 * Replace GLKH with StubGtspSolver (in-process greedy tour, no solver binaries needed, no instance files written)
+	 */
+	public static boolean stubSolver = false;
+	/**
+	 * Scale tests (ScaleHarness): every corpus size x sentence length x depth point is run on a synthetic
+	 * lexicon, deeper points of the same corpus are skipped once a point takes more than scaleTimeLimit seconds
+	 */
+	public static final String scalePath = "SCALE/";
+	public static int[] scaleCorpusSizes = { 10, 50, 200 };
+	public static int[] scaleSentenceLengths = { 4, 8, 16, 32 };
+	public static int[] scaleDepths = { 1, 2, 3, 4 };
+	public static int scaleTimeLimit = 600;
 }
@@ -0,0 +1,164 @@
+package com.sgametrio.wsd;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Content-addressed cache of GTSP solutions.
+ * Tours are stored as 1-based vertex indexes (same as TOUR_SECTION of solver output)
+ * and are keyed by a hash of the distance matrix and clusters layout, so the same instance
+ * generated by different configurations is solved only once.
+ * Memory tier keeps the Globals.solutionCacheSize most recently used tours
+ */
+public class GtspCache {
+	// Access ordered, guarded by itself
+	private final Map<String, int[]> memory = new LinkedHashMap<String, int[]>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, int[]> eldest) {
+			return Globals.solutionCacheSize > 0 && this.size() > Globals.solutionCacheSize;
+		}
+	};
+	private final File directory;
+
+	/**
+	 * @param directory on-disk tier path, null to keep the cache only in memory
+	 */
+	public GtspCache(String directory) {
+		if (directory != null) {
+			this.directory = new File(directory);
+			if (!this.directory.isDirectory()) {
+				this.directory.mkdirs();
+			}
+		} else {
+			this.directory = null;
+		}
+	}
+
+	/**
+	 * Compute instance key as SHA-256 of solver configuration (runs, seed, portfolio, time limit, stub solver),
+	 * clusters sizes and distances: tours found by another solver configuration are not reused
+	 * @param instance
+	 * @return hex string representing the instance
+	 */
+	public static String key(GtspInstance instance) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			int[] clusterSizes = instance.getClusterSizes();
+			int[] distances = instance.getDistances();
+			ByteBuffer buffer = ByteBuffer.allocate(4 * (7 + clusterSizes.length + distances.length) + 8);
+			buffer.putInt(Globals.runs);
+			buffer.putInt(Globals.solverSeed);
+			buffer.putInt(Globals.portfolioSize);
+			buffer.putLong(Globals.portfolioTargetLength);
+			buffer.putInt(Globals.solverTimeLimit);
+			buffer.putInt(Globals.stubSolver ? 1 : 0);
+			buffer.putInt(instance.size());
+			buffer.putInt(clusterSizes.length);
+			buffer.asIntBuffer().put(clusterSizes);
+			buffer.position(buffer.position() + 4 * clusterSizes.length);
+			buffer.asIntBuffer().put(distances);
+			digest.update(buffer.array());
+			StringBuilder hex = new StringBuilder();
+			for (byte b : digest.digest()) {
+				hex.append(String.format("%02x", b));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			// SHA-256 is mandatory for every JVM implementation
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Look up a tour in memory first and then on disk
+	 * @param key
+	 * @return tour or null if instance has never been solved
+	 */
+	public int[] get(String key) {
+		int[] tour = null;
+		synchronized(memory) {
+			tour = memory.get(key);
+		}
+		if (tour == null && directory != null) {
+			tour = readTour(new File(directory, key + ".tour"));
+			if (tour != null) {
+				synchronized(memory) {
+					memory.put(key, tour);
+				}
+			}
+		}
+		return tour;
+	}
+
+	public void put(String key, int[] tour) {
+		synchronized(memory) {
+			memory.put(key, tour);
+		}
+		if (directory != null) {
+			writeTour(new File(directory, key + ".tour"), tour);
+		}
+	}
+
+	/**
+	 * @return tours in memory tier
+	 */
+	public int size() {
+		synchronized(memory) {
+			return memory.size();
+		}
+	}
+
+	private int[] readTour(File file) {
+		if (!file.exists())
+			return null;
+		ArrayList<Integer> indexes = new ArrayList<Integer>();
+		try {
+			BufferedReader reader = new BufferedReader(new FileReader(file));
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.trim().length() > 0) {
+					indexes.add(Integer.parseInt(line.trim()));
+				}
+			}
+			reader.close();
+		} catch (IOException | NumberFormatException e) {
+			// Corrupted entry, behave as a miss
+			return null;
+		}
+		int[] tour = new int[indexes.size()];
+		for (int i = 0; i < tour.length; i++) {
+			tour[i] = indexes.get(i);
+		}
+		return tour;
+	}
+
+	private void writeTour(File file, int[] tour) {
+		// Write to a temporary file and rename it to avoid partially written entries
+		File tmp = new File(directory, file.getName() + "." + Thread.currentThread().getId() + ".tmp");
+		try {
+			BufferedWriter writer = new BufferedWriter(new FileWriter(tmp));
+			for (int index : tour) {
+				writer.write(index + "\n");
+			}
+			writer.close();
+			if (!tmp.renameTo(file)) {
+				tmp.delete();
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			tmp.delete();
+		}
+	}
+}
@@ -0,0 +1,324 @@
+package com.sgametrio.wsd;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * GTSP instance built from disambiguation nodes.
+ * Vertexes are grouped by cluster (same order of JGraph.getVertexArray) and distances
+ * are kept in a dense row-major int array: distance(i, j) = distances[i * size + j]
+ */
+public class GtspInstance {
+	private final ArrayList<JNode> vertices;
+	private final int[] clusterSizes;
+	private final int[] distances;
+	private final int size;
+
+	public GtspInstance(ArrayList<JNode> vertices, int[] clusterSizes, int[] distances) {
+		this.vertices = vertices;
+		this.clusterSizes = clusterSizes;
+		this.distances = distances;
+		this.size = vertices.size();
+	}
+
+	/**
+	 * Compute distance between every pair of nodes of different clusters as
+	 * precision * (1 - centrality mean). Nodes of the same cluster are kept at Globals.precision
+	 * @param graph containing disambiguation nodes with centrality already assigned
+	 * @return instance
+	 */
+	public static GtspInstance fromCentrality(JGraph graph) {
+		Map<Integer, Set<JNode>> clusters = graph.getClusters();
+		ArrayList<JNode> vertices = new ArrayList<JNode>();
+		int[] clusterSizes = new int[clusters.size()];
+		int c = 0;
+		for (Set<JNode> cluster : clusters.values()) {
+			vertices.addAll(cluster);
+			clusterSizes[c++] = cluster.size();
+		}
+		int size = vertices.size();
+		int[] distances = new int[size * size];
+		for (int i = 0; i < size; i++) {
+			JNode n1 = vertices.get(i);
+			int row = i * size;
+			for (int j = 0; j < size; j++) {
+				JNode n2 = vertices.get(j);
+				if (i == j || n1.getSentenceIndex() == n2.getSentenceIndex()) {
+					distances[row + j] = Globals.precision;
+				} else {
+					distances[row + j] = distance(n1, n2);
+				}
+			}
+		}
+		return new GtspInstance(vertices, clusterSizes, distances);
+	}
+
+	/**
+	 * Insert distance instead of weight (weight is in [0,1]), multiplied by precision
+	 * @param n1
+	 * @param n2
+	 * @return distance, at least 1
+	 */
+	public static int distance(JNode n1, JNode n2) {
+		double mean = JNode.mean(n1, n2);
+		// Globals.precision let me lose only little info (decimal values)
+		int distance = (int) Math.round(Globals.precision * (1 - mean));
+		if (distance == 0) {
+			// Centrality mean -> 1 set weight to 1
+			distance = 1;
+		}
+		return distance;
+	}
+
+	/**
+	 * Keep, for every vertex, only its k nearest vertexes of other clusters.
+	 * Kept distances are symmetric (kept if any of the two endpoints keeps it),
+	 * all the others are set to Globals.sparseDistance
+	 * @param k
+	 * @return new sparse instance with same vertexes and clusters
+	 */
+	public GtspInstance sparsify(int k) {
+		int[] clusterOf = this.getClusterOf();
+		int[] sparse = Arrays.copyOf(distances, distances.length);
+		WorkerScratch scratch = WorkerScratch.acquire();
+		try {
+			boolean[] keep = scratch.flags(size * size);
+			long[] candidates = scratch.longs(size);
+			for (int i = 0; i < size; i++) {
+				int n = 0;
+				for (int j = 0; j < size; j++) {
+					if (clusterOf[i] != clusterOf[j]) {
+						// distance in high bits, index in low bits: sort by distance, then by index
+						candidates[n++] = ((long) distances[i * size + j] << 32) | j;
+					}
+				}
+				Arrays.sort(candidates, 0, n);
+				for (int c = 0; c < Math.min(k, n); c++) {
+					int j = (int) candidates[c];
+					keep[i * size + j] = true;
+					keep[j * size + i] = true;
+				}
+			}
+			for (int i = 0; i < size; i++) {
+				for (int j = 0; j < size; j++) {
+					if (clusterOf[i] != clusterOf[j] && !keep[i * size + j]) {
+						sparse[i * size + j] = Globals.sparseDistance;
+					}
+				}
+			}
+		} finally {
+			scratch.release();
+		}
+		return new GtspInstance(vertices, clusterSizes, sparse);
+	}
+
+	/**
+	 * Remove senses that can't improve any tour: u is dominated by v (same cluster) if
+	 * d(u, w) >= d(v, w) and d(w, u) >= d(w, v) for every vertex w of other clusters,
+	 * so replacing u with v never makes a tour longer. Between duplicates (mutual dominance)
+	 * the first one is kept. Optionally keep only the maxPerCluster senses with highest centrality.
+	 * @param eliminateDominated
+	 * @param maxPerCluster 0 to keep all non dominated senses
+	 * @return new instance (vertex order is kept, so tours map to nodes through getVertex)
+	 */
+	public GtspInstance reduce(boolean eliminateDominated, int maxPerCluster) {
+		int[] clusterOf = this.getClusterOf();
+		WorkerScratch scratch = WorkerScratch.acquire();
+		try {
+			boolean[] removed = scratch.flags(size);
+			int start = 0;
+			for (int c = 0; c < clusterSizes.length; c++) {
+				int end = start + clusterSizes[c];
+				if (eliminateDominated) {
+					for (int u = start; u < end; u++) {
+						for (int v = start; v < end && !removed[u]; v++) {
+							if (u == v || removed[v])
+								continue;
+							if (this.dominates(v, u, clusterOf) && (v < u || !this.dominates(u, v, clusterOf))) {
+								removed[u] = true;
+							}
+						}
+					}
+				}
+				if (maxPerCluster > 0) {
+					ArrayList<Integer> kept = new ArrayList<Integer>();
+					for (int u = start; u < end; u++) {
+						if (!removed[u])
+							kept.add(u);
+					}
+					// Highest centrality first, lowest index on ties
+					Collections.sort(kept, new Comparator<Integer>() {
+						@Override
+						public int compare(Integer u, Integer v) {
+							int byCentrality = Double.compare(vertices.get(v).getCentrality(), vertices.get(u).getCentrality());
+							return byCentrality != 0 ? byCentrality : u.compareTo(v);
+						}
+					});
+					for (int i = maxPerCluster; i < kept.size(); i++) {
+						removed[kept.get(i)] = true;
+					}
+				}
+				start = end;
+			}
+			ArrayList<JNode> reducedVertices = new ArrayList<JNode>();
+			int[] reducedSizes = new int[clusterSizes.length];
+			int[] index = scratch.ints(0, size);
+			for (int u = 0; u < size; u++) {
+				if (!removed[u]) {
+					index[reducedVertices.size()] = u;
+					reducedVertices.add(vertices.get(u));
+					reducedSizes[clusterOf[u]]++;
+				}
+			}
+			int reducedSize = reducedVertices.size();
+			if (reducedSize == size) {
+				return this;
+			}
+			int[] reducedDistances = new int[reducedSize * reducedSize];
+			for (int i = 0; i < reducedSize; i++) {
+				for (int j = 0; j < reducedSize; j++) {
+					reducedDistances[i * reducedSize + j] = distances[index[i] * size + index[j]];
+				}
+			}
+			return new GtspInstance(reducedVertices, reducedSizes, reducedDistances);
+		} finally {
+			scratch.release();
+		}
+	}
+
+	/**
+	 * @return true if v is at least as close as u to every vertex of other clusters, in both directions
+	 */
+	private boolean dominates(int v, int u, int[] clusterOf) {
+		for (int w = 0; w < size; w++) {
+			if (clusterOf[w] == clusterOf[u])
+				continue;
+			if (distances[v * size + w] > distances[u * size + w] || distances[w * size + v] > distances[w * size + u])
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return cluster index of every vertex
+	 */
+	public int[] getClusterOf() {
+		int[] clusterOf = new int[size];
+		int j = 0;
+		for (int i = 0; i < clusterSizes.length; i++) {
+			for (int k = 0; k < clusterSizes[i]; k++) {
+				clusterOf[j++] = i;
+			}
+		}
+		return clusterOf;
+	}
+
+	/**
+	 * @param distance
+	 * @return how many matrix entries are equal to distance
+	 */
+	public int count(int distance) {
+		int count = 0;
+		for (int d : distances) {
+			if (d == distance)
+				count++;
+		}
+		return count;
+	}
+
+	/**
+	 * @param tour 1-based vertex indexes
+	 * @return length of closed tour on this instance
+	 */
+	public long tourLength(int[] tour) {
+		long length = 0;
+		for (int i = 0; i < tour.length; i++) {
+			length += distance(tour[i] - 1, tour[(i + 1) % tour.length] - 1);
+		}
+		return length;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int getClustersCount() {
+		return clusterSizes.length;
+	}
+
+	public int[] getClusterSizes() {
+		return clusterSizes;
+	}
+
+	public int distance(int i, int j) {
+		return distances[i * size + j];
+	}
+
+	public int[] getDistances() {
+		return distances;
+	}
+
+	/**
+	 * @param index 0-based vertex index
+	 * @return node represented by vertex
+	 */
+	public JNode getVertex(int index) {
+		return vertices.get(index);
+	}
+
+	public ArrayList<JNode> getVertices() {
+		return vertices;
+	}
+
+	/**
+	 * Writes instance in GTSPLIB format (EXPLICIT, FULL_MATRIX)
+	 * @param file path to file
+	 * @param name instance name
+	 * @param comment
+	 * @throws IOException
+	 */
+	public void write(String file, String name, String comment) throws IOException {
+		BufferedWriter writer = new BufferedWriter(new FileWriter(file));
+		try {
+			writer.write("NAME : " + name + ".gtsp\n");
+			writer.write("TYPE : GTSP\n");
+			writer.write("COMMENT : " + comment + "\n");
+			writer.write("DIMENSION : " + size + "\n");
+			writer.write("GTSP_SETS : " + clusterSizes.length + "\n");
+			writer.write("EDGE_WEIGHT_TYPE : EXPLICIT \n");
+			writer.write("EDGE_WEIGHT_FORMAT : FULL_MATRIX \n");
+			writer.write("EDGE_WEIGHT_SECTION : \n");
+			StringBuilder row = new StringBuilder();
+			for (int i = 0; i < size; i++) {
+				row.setLength(0);
+				for (int j = 0; j < size; j++) {
+					row.append(distances[i * size + j]).append(' ');
+				}
+				row.append('\n');
+				writer.write(row.toString());
+			}
+			writer.write("GTSP_SET_SECTION : \n");
+			int j = 0;
+			for (int i = 0; i < clusterSizes.length; i++) {
+				row.setLength(0);
+				row.append(i + 1).append(' ');
+				for (int k = 0; k < clusterSizes[i]; k++) {
+					row.append(j + 1).append(' ');
+					j++;
+				}
+				row.append("-1\n");
+				writer.write(row.toString());
+			}
+			writer.write("EOF");
+		} finally {
+			writer.close();
+		}
+	}
+}
@@ -7,9 +7,11 @@ package com.sgametrio.wsd;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FilenameFilter;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.nio.file.attribute.PosixFilePermission;
+import java.lang.management.ManagementFactory;
 import java.time.Duration;
 import java.time.Instant;
 import java.io.IOException;
@@ -20,13 +22,32 @@ import java.nio.file.*;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedSet;
-import java.util.Stack;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import additional.KppClosenessCentrality;
 import dk.aaue.sna.alg.centrality.DegreeCentrality;
@@ -41,8 +62,30 @@ import evaluation.InputSentence;
 
 public class JExecutor {
 	private WordnetAdapter wordnet = null;
+	private GtspCache solutionCache = null;
+	// Solver runs of this executor stopped by time limit
+	private final AtomicInteger solverTimeouts = new AtomicInteger();
+	// Confidence gating (Globals.confidenceGating) and its statistics
+	private final ConfidenceGate confidenceGate = new ConfidenceGate(this);
+	// Long sentences (Globals.windowThreshold)
+	private final WindowRunner windowRunner = new WindowRunner(this);
+	// Bounds CPU-bound stages when sentences run on more threads than cores
+	private final Semaphore cpuPermits = new Semaphore(Globals.cpuPermits > 0 ? Globals.cpuPermits : Runtime.getRuntime().availableProcessors());
+	// sentence id -> disambiguation time in nanoseconds
+	private final Map<String, Long> sentenceCosts = new ConcurrentHashMap<String, Long>();
+	private final AtomicIntegerArray portfolioWins = new AtomicIntegerArray(Math.max(1, Globals.portfolioSize));
+	private final ExecutorService streamReaders = Executors.newCachedThreadPool(ThreadPools.daemonThreads("solver-stream"));
+	private final ExecutorService portfolioExecutor = Executors.newCachedThreadPool(ThreadPools.daemonThreads("solver-portfolio"));
+	// Runs (depth, centrality) configurations of every sentence
+	private Executor configurationExecutor = null;
+	// Receive every result, no result is written if empty
+	private final List<ResultSink> sinks = new CopyOnWriteArrayList<ResultSink>();
+	// Units already done by a previous run (resume), may be null
+	private ProgressJournal journal = null;
+	// Single sentence disambiguations of all executors of this process, names their solver files
+	private static final AtomicLong apiCalls = new AtomicLong();
+	private static final String processId = ManagementFactory.getRuntimeMXBean().getName().split("@")[0];
 	//saving params
-	private final Object fileLock = new Object();
 	private final Object timingsLock = new Object();
 	private final Object graphLock = new Object();
 	//execution params
@@ -51,92 +94,177 @@ public class JExecutor {
 	
 	//CONSTRUCTOR
 	public JExecutor(){
-		this.wordnet = new WordnetAdapter();
+		this(new WordnetAdapter());
+	}
+
+	/**
+	 * @param wordnet dictionary used to find senses and expand graphs (e.g. a SyntheticWordnet lexicon)
+	 */
+	public JExecutor(WordnetAdapter wordnet){
+		this.wordnet = wordnet;
+		this.solutionCache = new GtspCache(Globals.diskSolutionCache ? Globals.solutionCachePath : null);
+		if (Globals.parallelConfigurations) {
+			if (Globals.useVirtualThreads) {
+				this.configurationExecutor = ThreadPools.newVirtualThreadExecutor();
+			}
+			if (this.configurationExecutor == null) {
+				int threads = Globals.configurationThreads > 0 ? Globals.configurationThreads : Runtime.getRuntime().availableProcessors();
+				this.configurationExecutor = Executors.newFixedThreadPool(threads, ThreadPools.daemonThreads("configuration"));
+			}
+		} else {
+			// Run configurations sequentially on sentence thread
+			this.configurationExecutor = new Executor() {
+				@Override
+				public void execute(Runnable command) {
+					command.run();
+				}
+			};
+		}
 	}
 	
+	public WordnetAdapter getWordnet() {
+		return this.wordnet;
+	}
+
 	public void closeDictionary() {
 		this.wordnet.closeDict();
 	}
+	
+	/**
+	 * @return number of solver runs of this executor stopped by Globals.solverTimeLimit
+	 */
+	public int getSolverTimeouts() {
+		return this.solverTimeouts.get();
+	}
+	
+	/**
+	 * @return measured sentence id -> disambiguation time in nanoseconds
+	 */
+	public Map<String, Long> getSentenceCosts() {
+		return this.sentenceCosts;
+	}
+	
+	/**
+	 * Count candidate senses of the instances that will be disambiguated, without changing input
+	 * @param input
+	 * @return number of disambiguation nodes
+	 */
+	public int countSenses(InputSentence input) {
+		int senses = 0;
+		for (InputInstance i : this.mySelectPos(input.instances)) {
+			senses += this.wordnet.getWordsList(i.lemma, i.pos).size();
+		}
+		return senses;
+	}
+	
+	/**
+	 * @return how many times every portfolio member found the best tour
+	 */
+	public String getPortfolioStatistics() {
+		String statistics = "[PORTFOLIO] wins by member (seed):";
+		for (int i = 0; i < this.portfolioWins.length(); i++) {
+			statistics += " " + i + " (" + (Globals.solverSeed + i) + ") => " + this.portfolioWins.get(i);
+		}
+		return statistics;
+	}
+	
+	/**
+	 * @return confidence gating summary: escalation rate, fixed clusters and time saved,
+	 * estimated on audited instances (Globals.gatingAuditRate)
+	 */
+	public String getGatingStatistics() {
+		return this.confidenceGate.getStatistics();
+	}
+
+	/**
+	 * @return run -> {term id, gated sense key, ungated sense key} of every term of audited instances
+	 */
+	public Map<String, List<String[]>> getGatingAudit() {
+		return this.confidenceGate.getAudit();
+	}
 	/**
 	 * Calls all the functions needed to perform the disambiguation
 	 * @param input a map having word POS as keys and an array containing
 	 * the lemma, the word as it was written in the sentence, the index of the word in the sentence and
 	 * the params of the word given in the evaluation framework
 	 */
-	public void performDisambiguation(InputSentence input) {
-		Instant before = Instant.now();
+	public void performDisambiguation(final InputSentence input) {
+		this.performDisambiguation(input, null);
+	}
+
+	/**
+	 * Disambiguate a sentence of a document with all configurations
+	 * @param input
+	 * @param document WordNet lookups of previous sentences of the same document, may be null
+	 */
+	public void performDisambiguation(final InputSentence input, final DocumentContext document) {
+		long start = System.nanoTime();
 		// If there are no instances to be disambiguated, skip
+		int ids = 0;
+		for (InputInstance i : input.instances) {
+			if (i.id != null) {
+				ids++;
+			}
+		}
+		if (ids == 0)
+			return;
+		if (!this.hasPendingUnits(input.sentenceId, Globals.minDepth, Globals.maxDepth)) {
+			Metrics.counter("sentences.resumed").increment();
+			return;
+		}
+		ArrayList<InputInstance> selectedInstances = this.mySelectPos(input.instances);
+		input.instances.clear();
+		input.instances.addAll(selectedInstances);
+		// Shared by every configuration: disambiguation nodes are only read by expansion and centrality,
+		// every configuration works on its own copies
+		final ArrayList<JNode> senses = this.getSensesFromInstances(input.instances, document);
+		
+		List<int[]> windows = SentenceWindows.split(input.instances.size());
+		
+		Metrics.gauge("sentences.running").add(1);
+		ArrayList<CompletableFuture<Void>> configurations = new ArrayList<CompletableFuture<Void>>();
 		for (int depth = Globals.minDepth; depth <= Globals.maxDepth; depth++) {
-			for (String currentCentrality : Globals.centralities) {
-				int ids = 0;
-				for (InputInstance i : input.instances) {
-					if (i.id != null) {
-						ids++;
-					}
+			if (!this.hasPendingUnits(input.sentenceId, depth, depth))
+				continue;
+			if (windows.size() > 1) {
+				configurations.addAll(this.windowRunner.run(input, senses, windows, depth, document));
+				continue;
+			}
+			final int currentDepth = depth;
+			// Expanded graph is shared by all centralities of the same depth
+			CompletableFuture<ExpandedGraph> expansion = CompletableFuture.supplyAsync(new Supplier<ExpandedGraph>() {
+				@Override
+				public ExpandedGraph get() {
+					return expandGraph(input, senses, currentDepth, document);
 				}
-				if (ids == 0)
-					return;
-				// Graphs build
-				ArrayList<InputInstance> selectedInstances = this.mySelectPos(input.instances);
-
-				input.instances.clear();
-				input.instances.addAll(selectedInstances);
-				JGraph dGraph = null;
-				JGraph cGraph = null;
-				ArrayList<JNode> senses = this.getSensesFromInstances(input.instances);
-			
-				synchronized(this.graphLock) {
-					dGraph = new JGraph(input.sentence, input.sentenceId);
-					cGraph = new JGraph(input.sentence, input.sentenceId);
-				}
-				// Add disambiguation nodes to both graphs
-				for (JNode n : senses) {
-					dGraph.addVertex(n);
-					cGraph.addVertex(n);
-				}
-				// Add auxiliary nodes to compute centrality
-				Instant beforeDFS = Instant.now();
-				this.addDFSNodes(cGraph, depth);
-				Instant afterDFS = Instant.now();
-				Duration between = Duration.between(beforeDFS, afterDFS);
-					
-				// End graphs build
-				// Run all possible configurations
-			
-				dGraph.resetLog();
-				cGraph.resetLog();
-				cGraph.log(Globals.logStatistics, "[TIME][DFS] " + between);
-				dGraph.log(Globals.logStatistics, "[TIME][DFS] " + between);
-				// Use centrality to disambiguate senses
-				Instant beforeC = Instant.now();
-				this.computeCentrality(cGraph, currentCentrality);
-				Instant afterC = Instant.now();
-				cGraph.log(Globals.logStatistics, "[TIME][CENTRALITY][" + currentCentrality + "] " + Duration.between(beforeC, afterC));
-				dGraph.log(Globals.logStatistics, "[TIME][CENTRALITY][" + currentCentrality + "] " + Duration.between(beforeC, afterC));
-				// id representing configuration
-				String filename = Globals.currentDataset + "_" + currentCentrality + "_" + depth;
-				 
-				String evalCFilename = filename + "_by-centrality";
-				String evalDFilename = filename + "_run-solver";
-				String cFilename = evalCFilename + "_" + cGraph.getSentenceId();
-				String dFilename = evalDFilename + "_" + dGraph.getSentenceId();
-				
-				// Disambiguation by centrality
-				Map<Integer, JNode> mapC = this.disambiguateByCentrality(cGraph, dGraph);
-				cGraph.log(Globals.logStatistics, this.printMapToFile(mapC, evalCFilename));
-				
-				// Disambiguation by TSP
-				Map<Integer, JNode> mapD = this.disambiguateByTSP(dGraph, dFilename);
-				dGraph.log(Globals.logStatistics, this.printMapToFile(mapD, evalDFilename));
-				
-				cGraph.exportCustomGml(Globals.gmlPath + cFilename + ".gml");
-				dGraph.exportCustomGml(Globals.gmlPath + dFilename + ".gml");
-				cGraph.logOnFile(cFilename);
-				dGraph.logOnFile(dFilename);
+			}, this.configurationExecutor);
+			for (final String currentCentrality : Globals.centralities) {
+				// By-centrality and TSP are separate tasks, TSP starts from the centrality result
+				CompletableFuture<ScoredConfiguration> byCentrality = expansion.thenApplyAsync(new Function<ExpandedGraph, ScoredConfiguration>() {
+					@Override
+					public ScoredConfiguration apply(ExpandedGraph expanded) {
+						return runByCentrality(input, expanded, currentCentrality);
+					}
+				}, this.configurationExecutor);
+				configurations.add(byCentrality.thenAcceptAsync(new Consumer<ScoredConfiguration>() {
+					@Override
+					public void accept(ScoredConfiguration scored) {
+						runBySolver(input, scored);
+					}
+				}, this.configurationExecutor));
 			}
 		}
-		Instant after = Instant.now();
-		Duration time = Duration.between(before, after);
+		try {
+			CompletableFuture.allOf(configurations.toArray(new CompletableFuture[configurations.size()])).join();
+		} catch (CompletionException e) {
+			System.err.print(Thread.currentThread().getStackTrace()[1].getMethodName()+" threw: ");
+			System.err.println(e.getCause());
+		}
+		Metrics.gauge("sentences.running").add(-1);
+		Duration time = Duration.ofNanos(Metrics.stop("sentence", start));
+		Metrics.counter("sentences").increment();
+		Metrics.gauge("solution-cache.size").set(this.solutionCache.size());
+		this.sentenceCosts.put(input.sentenceId, time.toNanos());
 		synchronized(timingsLock) {
 			PrintWriter timings;
 			try {
@@ -151,9 +279,318 @@ public class JExecutor {
 	}
 	
 	
-	private Map<Integer, JNode> disambiguateByTSP(JGraph dGraph, String dFilename) {
-		// Distribute centralities on edges
-		this.createEdgesByCentrality(dGraph);
+	/**
+	 * Build graph used to compute centrality: disambiguation nodes plus auxiliary nodes found by DFS
+	 * @param input
+	 * @param senses
+	 * @param depth
+	 * @return expanded graph and time spent
+	 */
+	ExpandedGraph expandGraph(InputSentence input, ArrayList<JNode> senses, int depth) {
+		return this.expandGraph(input, senses, depth, null);
+	}
+
+	/**
+	 * @param input
+	 * @param senses
+	 * @param depth
+	 * @param document related words are looked up through it, may be null
+	 * @return expanded graph and time spent
+	 */
+	ExpandedGraph expandGraph(InputSentence input, ArrayList<JNode> senses, int depth, DocumentContext document) {
+		JGraph cGraph = this.newGraph(input.sentence, input.sentenceId);
+		for (JNode n : senses) {
+			cGraph.addVertex(n);
+		}
+		// Add auxiliary nodes to compute centrality
+		long dfs = 0;
+		this.cpuPermits.acquireUninterruptibly();
+		try {
+			long start = System.nanoTime();
+			Object trace = Tracing.begin(Tracing.expansion);
+			this.addDFSNodes(cGraph, depth, document);
+			dfs = Metrics.stop("expansion", start);
+			Tracing.end(trace, input.sentenceId, depth, null, cGraph.vertexSet().size(), cGraph.edgeSet().size(), 0);
+		} finally {
+			this.cpuPermits.release();
+		}
+		Metrics.size("expanded.vertices").record(cGraph.vertexSet().size());
+		Metrics.size("expanded.edges").record(cGraph.edgeSet().size());
+		return new ExpandedGraph(cGraph, senses, depth, Duration.ofNanos(dfs));
+	}
+
+	/**
+	 * A configuration of a sentence disambiguated by centrality, input of its TSP task
+	 */
+	private static class ScoredConfiguration {
+		ExpandedGraph expanded;
+		String centrality;
+		// TSP graph, null if TSP unit is already done
+		JGraph dGraph;
+		Map<Integer, JNode> mapC;
+		Duration centralityTime;
+	}
+
+	/**
+	 * Disambiguate one sentence with one configuration by centrality
+	 * @param input
+	 * @param expanded shared expanded graph, only read
+	 * @param currentCentrality
+	 * @return scored senses for the TSP task, null if both units are already done
+	 */
+	private ScoredConfiguration runByCentrality(InputSentence input, ExpandedGraph expanded, String currentCentrality) {
+		int depth = expanded.depth;
+		// ids representing configuration
+		String evalCFilename = DisambiguationResult.run(currentCentrality, depth, Globals.byCentralityMethod);
+		String evalDFilename = DisambiguationResult.run(currentCentrality, depth, Globals.runSolverMethod);
+		// Resuming: units already in key files are neither logged nor published again
+		boolean cDone = this.isDone(input.sentenceId, evalCFilename);
+		boolean dDone = this.isDone(input.sentenceId, evalDFilename);
+		if (cDone && dDone)
+			return null;
+		// Use centrality to disambiguate senses
+		Instant beforeC = Instant.now();
+		Map<JNode, Double> scores = this.scoreSenses(expanded, currentCentrality);
+		Instant afterC = Instant.now();
+		JGraph dGraph = this.newGraph(input.sentence, input.sentenceId);
+		JGraph cGraph = this.newGraph(input.sentence, input.sentenceId);
+		this.addScoredSenses(expanded, scores, cGraph, dGraph);
+		String cFilename = evalCFilename + "_" + cGraph.getSentenceId();
+		cGraph.setConfiguration(evalCFilename, depth, currentCentrality);
+		dGraph.setConfiguration(evalDFilename, depth, currentCentrality);
+		if (!cDone) {
+			cGraph.log(Globals.logStatistics, "[TIME][DFS] " + expanded.time);
+			cGraph.log(Globals.logStatistics, "[TIME][CENTRALITY][" + currentCentrality + "] " + Duration.between(beforeC, afterC));
+		}
+		if (!dDone) {
+			dGraph.log(Globals.logStatistics, "[TIME][DFS] " + expanded.time);
+			dGraph.log(Globals.logStatistics, "[TIME][CENTRALITY][" + currentCentrality + "] " + Duration.between(beforeC, afterC));
+		}
+		
+		// Disambiguation by centrality (also fallback of TSP)
+		Instant beforeMapC = Instant.now();
+		Map<Integer, JNode> mapC = this.disambiguateByCentrality(cGraph, dGraph);
+		Instant afterMapC = Instant.now();
+		if (!cDone) {
+			cGraph.log(Globals.logStatistics, this.sentenceTerms(mapC));
+			this.publish(new DisambiguationResult(input.sentenceId, depth, currentCentrality, Globals.byCentralityMethod, mapC,
+					expanded.time, Duration.between(beforeC, afterC), Duration.between(beforeMapC, afterMapC)));
+			// Expanded graph with centralities of this configuration
+			expanded.graph.exportCustomGml(Globals.gmlPath + cFilename + ".gml", scores);
+		}
+		ScoredConfiguration scored = new ScoredConfiguration();
+		scored.expanded = expanded;
+		scored.centrality = currentCentrality;
+		scored.dGraph = dDone ? null : dGraph;
+		scored.mapC = mapC;
+		scored.centralityTime = Duration.between(beforeC, afterC);
+		return scored;
+	}
+
+	/**
+	 * Disambiguate one sentence with one configuration by TSP
+	 * @param input
+	 * @param scored result of runByCentrality, may be null
+	 */
+	private void runBySolver(InputSentence input, ScoredConfiguration scored) {
+		if (scored == null)
+			return;
+		if (scored.dGraph != null) {
+			JGraph dGraph = scored.dGraph;
+			String dFilename = dGraph.getRun() + "_" + dGraph.getSentenceId();
+			Instant beforeD = Instant.now();
+			Map<Integer, JNode> mapD = this.disambiguateBySolver(dGraph, dFilename, scored.mapC);
+			Instant afterMapD = Instant.now();
+			dGraph.log(Globals.logStatistics, this.sentenceTerms(mapD));
+			this.publish(new DisambiguationResult(input.sentenceId, scored.expanded.depth, scored.centrality, Globals.runSolverMethod, mapD,
+					scored.expanded.time, scored.centralityTime, Duration.between(beforeD, afterMapD))
+					.setSolverTimeouts(dGraph.getSolverTimeouts()));
+			dGraph.exportCustomGml(Globals.gmlPath + dFilename + ".gml");
+		}
+		Metrics.counter("configurations").increment();
+	}
+
+	/**
+	 * Disambiguate a sentence with a single configuration. Nothing is written but results to sinks:
+	 * graph events are not logged, solver exchange files are deleted once the tour is read
+	 * @param input sentence, it's not modified
+	 * @param depth
+	 * @param centrality
+	 * @param method Globals.byCentralityMethod or Globals.runSolverMethod
+	 * @return result
+	 */
+	public DisambiguationResult disambiguate(InputSentence input, int depth, String centrality, String method) {
+		ArrayList<InputInstance> instances = this.mySelectPos(input.instances);
+		ExpandedGraph expanded = this.expandGraph(input, this.getSensesFromInstances(instances), depth);
+		Instant beforeC = Instant.now();
+		Map<JNode, Double> scores = this.scoreSenses(expanded, centrality);
+		Instant afterC = Instant.now();
+		JGraph graph = this.newGraph(input.sentence, input.sentenceId);
+		graph.setConfiguration(DisambiguationResult.configuration(centrality, depth, method), depth, centrality);
+		graph.setRecordEvents(false);
+		this.addScoredSenses(expanded, scores, graph);
+		Map<Integer, JNode> map = this.disambiguateByCentrality(graph, graph);
+		if (method.equals(Globals.runSolverMethod)) {
+			// Solver files must not be shared by concurrent calls, of this executor or of other ones,
+			// also in other processes running in the same directory
+			String name = Globals.apiPrefix + processId + "_" + apiCalls.incrementAndGet();
+			try {
+				map = this.disambiguateBySolver(graph, name, map);
+			} finally {
+				this.deleteSolverFiles(name);
+			}
+		}
+		DisambiguationResult result = new DisambiguationResult(input.sentenceId, depth, centrality, method, map,
+				expanded.time, Duration.between(beforeC, afterC), Duration.between(afterC, Instant.now()));
+		this.publish(result);
+		return result;
+	}
+
+	/**
+	 * Delete instance, tour, script and parameter files of solver runs named name,
+	 * name_p<n> (portfolio members) and name_ungated (gating audit)
+	 * @param name
+	 */
+	private void deleteSolverFiles(String name) {
+		deleteRunFiles(new File(Globals.tspSolverPathToGTSPLIB), name);
+		deleteRunFiles(new File(Globals.tspSolverPathToGTOURS), name);
+		deleteRunFiles(new File(Globals.tspSolverHomeDir + "TMP"), name);
+		deleteRunFiles(new File(Globals.tspSolverHomeDir), Globals.tspSolverFileName + name);
+	}
+
+	private static void deleteRunFiles(File directory, final String name) {
+		File[] files = directory.listFiles(new FilenameFilter() {
+			@Override
+			public boolean accept(File dir, String file) {
+				// Not names of other calls: api_1 must not match api_10
+				return file.equals(name) || file.startsWith(name + ".") || file.startsWith(name + "_");
+			}
+		});
+		if (files == null)
+			return;
+		for (File file : files) {
+			file.delete();
+		}
+	}
+
+	public void addSink(ResultSink sink) {
+		this.sinks.add(sink);
+	}
+
+	/**
+	 * @param journal units found in journal are skipped by performDisambiguation
+	 */
+	public void setJournal(ProgressJournal journal) {
+		this.journal = journal;
+	}
+
+	boolean isDone(String sentenceId, String run) {
+		return this.journal != null && this.journal.isDone(sentenceId, run);
+	}
+
+	/**
+	 * @param sentenceId
+	 * @param minDepth
+	 * @param maxDepth
+	 * @return true if a unit of sentence with depth in [minDepth, maxDepth] is not done
+	 */
+	private boolean hasPendingUnits(String sentenceId, int minDepth, int maxDepth) {
+		if (this.journal == null)
+			return true;
+		for (int depth = minDepth; depth <= maxDepth; depth++) {
+			for (String centrality : Globals.centralities) {
+				if (!this.isDone(sentenceId, DisambiguationResult.run(centrality, depth, Globals.byCentralityMethod))
+						|| !this.isDone(sentenceId, DisambiguationResult.run(centrality, depth, Globals.runSolverMethod)))
+					return true;
+			}
+		}
+		return false;
+	}
+
+	void publish(DisambiguationResult result) {
+		for (ResultSink sink : this.sinks) {
+			sink.accept(result);
+		}
+	}
+
+	/**
+	 * @param sentence
+	 * @param sentenceId
+	 * @return new empty graph of sentence
+	 */
+	JGraph newGraph(String sentence, String sentenceId) {
+		synchronized(this.graphLock) {
+			return new JGraph(sentence, sentenceId);
+		}
+	}
+
+	/**
+	 * @return executor of configuration tasks
+	 */
+	Executor getConfigurationExecutor() {
+		return this.configurationExecutor;
+	}
+
+	/**
+	 * Compute centrality on shared expanded graph
+	 * @param expanded
+	 * @param centrality
+	 * @return scores of every node, null if centrality is unknown
+	 */
+	Map<JNode, Double> scoreSenses(ExpandedGraph expanded, String centrality) {
+		this.cpuPermits.acquireUninterruptibly();
+		try {
+			long start = System.nanoTime();
+			Object trace = Tracing.begin(Tracing.centrality);
+			Map<JNode, Double> scores = this.computeCentrality(expanded.graph, centrality);
+			Metrics.stop("centrality." + centrality, start);
+			JGraph graph = expanded.graph;
+			Tracing.end(trace, graph.getSentenceId(), expanded.depth, centrality, graph.vertexSet().size(), graph.edgeSet().size(), 0);
+			return scores;
+		} finally {
+			this.cpuPermits.release();
+		}
+	}
+
+	/**
+	 * Add copies of disambiguation nodes, with their centrality, to every graph (same copies for all graphs)
+	 * @param expanded
+	 * @param scores
+	 * @param graphs
+	 */
+	void addScoredSenses(ExpandedGraph expanded, Map<JNode, Double> scores, JGraph... graphs) {
+		for (JNode sense : expanded.senses) {
+			JNode n = new JNode(sense);
+			if (scores != null && scores.get(sense) != null) {
+				n.setCentrality(scores.get(sense));
+			}
+			for (JGraph graph : graphs) {
+				graph.addVertex(n);
+			}
+		}
+	}
+
+	/**
+	 * Disambiguate by TSP, through confidence gating if Globals.confidenceGating
+	 * @param dGraph
+	 * @param dFilename
+	 * @param centralityMap
+	 * @return map<cluster, sense>
+	 */
+	Map<Integer, JNode> disambiguateBySolver(JGraph dGraph, String dFilename, Map<Integer, JNode> centralityMap) {
+		if (Globals.confidenceGating)
+			return this.confidenceGate.disambiguate(dGraph, dFilename, centralityMap);
+		return this.disambiguateByTSP(dGraph, dFilename, centralityMap);
+	}
+
+	/**
+	 * Disambiguate by solving GTSP instance built from centralities
+	 * @param dGraph
+	 * @param dFilename
+	 * @param centralityMap used as fallback if solver exceeds time limit without a tour
+	 * @return map<cluster, sense>
+	 */
+	Map<Integer, JNode> disambiguateByTSP(JGraph dGraph, String dFilename, Map<Integer, JNode> centralityMap) {
 		if (dGraph.vertexSet().size() == 0) {
 			// Graph has no vertexes, nothing to disambiguate, continue;
 			dGraph.log(Globals.logInfo, "[NO WORDS] don't have words to disambiguate.");
@@ -166,27 +603,252 @@ public class JExecutor {
 			return disambiguationMap;
 		} else {
 			Instant beforeTSP = Instant.now();
-			dGraph.saveToGTSP(Globals.tspSolverPathToGTSPLIB, dFilename);
-			this.setTSPSolver(dFilename);
-			dGraph.log(Globals.logInfo, this.runSolver(dFilename));
+			// Distribute centralities on distances
+			GtspInstance dense = GtspInstance.fromCentrality(dGraph);
+			if (Globals.eliminateDominatedSenses || Globals.maxSensesPerCluster > 0) {
+				int before = dense.size();
+				dense = dense.reduce(Globals.eliminateDominatedSenses, Globals.maxSensesPerCluster);
+				dGraph.log(Globals.logStatistics, "[REDUCTION] vertexes " + before + " -> " + dense.size() 
+						+ " (" + String.format("%.2f", 100.0 * (before - dense.size()) / before) + "% removed)");
+			}
+			GtspInstance instance = dense;
+			if (dense.size() > Globals.sparseInstanceThreshold) {
+				instance = dense.sparsify(Globals.sparseNeighbours);
+				int interCluster = dense.size() * dense.size();
+				for (int clusterSize : dense.getClusterSizes()) {
+					interCluster -= clusterSize * clusterSize;
+				}
+				int kept = interCluster - instance.count(Globals.sparseDistance);
+				dGraph.log(Globals.logStatistics, "[SPARSE] vertexes " + dense.size() + " k = " + Globals.sparseNeighbours 
+						+ " kept distances " + kept + "/" + interCluster);
+			}
+			String key = null;
+			int[] tour = null;
+			if (Globals.useSolutionCache) {
+				key = GtspCache.key(instance);
+				tour = this.solutionCache.get(key);
+			}
+			boolean completed = true;
+			if (tour != null) {
+				Metrics.counter("solution-cache.hits").increment();
+				dGraph.log(Globals.logInfo, "[CACHE] Found solution for instance " + key);
+			} else if (instance.size() == instance.getClustersCount()) {
+				// One sense left per cluster, every tour has the same senses
+				dGraph.log(Globals.logInfo, "[REDUCTION] one sense per cluster, solver not needed");
+				tour = new int[instance.size()];
+				for (int i = 0; i < tour.length; i++) {
+					tour[i] = i + 1;
+				}
+			} else {
+				// Stub solver reads the instance in memory
+				if (!Globals.stubSolver) {
+					long write = System.nanoTime();
+					Object trace = Tracing.begin(Tracing.instanceWrite);
+					dGraph.saveToGTSP(instance, Globals.tspSolverPathToGTSPLIB, dFilename);
+					Metrics.stop("instance-write", write);
+					Tracing.end(trace, dGraph, instance.size(), (long) instance.size() * instance.size(), 0);
+				}
+				Metrics.size("gtsp.vertices").record(instance.size());
+				SolverRun run = null;
+				if (Globals.portfolioSize > 1) {
+					run = this.solvePortfolio(instance, dGraph, dFilename);
+				} else {
+					run = this.solve(instance, dGraph, dFilename, dFilename, 0);
+				}
+				tour = run.tour;
+				completed = run.completed;
+				if (!completed) {
+					// Metric counts timeouts of all executors of the process
+					Metrics.counter("solver.timeouts").increment();
+					this.solverTimeouts.incrementAndGet();
+					dGraph.solverTimeout();
+					dGraph.log(Globals.logStatistics, "[SOLVER TIMEOUT] " + dFilename + " stopped after " + run.elapsed);
+				}
+				// Tours found within time limit only are reproducible
+				if (key != null && tour != null && completed) {
+					this.solutionCache.put(key, tour);
+				}
+			}
 			Instant afterTSP = Instant.now();
 			Duration dTSP = Duration.between(beforeTSP, afterTSP);
 			dGraph.log(Globals.logStatistics, "[TIME][TSP] " + dTSP.toString());
-			return this.generateOutputFile(dGraph, dFilename);
+			if (instance != dense && tour != null && sampled(dGraph.getSentenceId() + dGraph.getRun(), Globals.sparseAuditRate)) {
+				this.auditSparsification(dGraph, dFilename, dense, tour);
+			}
+			if (tour == null && !completed) {
+				dGraph.log(Globals.logStatistics, "[SOLVER TIMEOUT] no tour found, fallback to disambiguation by centrality");
+				return centralityMap;
+			}
+			Object trace = Tracing.begin(Tracing.outputGeneration);
+			Map<Integer, JNode> disambiguationMap = this.generateOutputFile(instance, tour);
+			Tracing.end(trace, dGraph, tour == null ? 0 : tour.length, 0, 0);
+			return disambiguationMap;
+		}
+	}
+
+	/**
+	 * Solve also the dense instance of a sparsified one and log how much longer (on dense distances)
+	 * the tour of the sparse instance is. Not timed as TSP time of the graph
+	 * @param dGraph
+	 * @param dFilename
+	 * @param dense
+	 * @param sparseTour tour found on sparse instance
+	 */
+	private void auditSparsification(JGraph dGraph, String dFilename, GtspInstance dense, int[] sparseTour) {
+		String denseName = dFilename + "_dense";
+		if (!Globals.stubSolver) {
+			dGraph.saveToGTSP(dense, Globals.tspSolverPathToGTSPLIB, denseName);
+		}
+		SolverRun run = this.solve(dense, dGraph, denseName, denseName, 0);
+		if (run.tour == null) {
+			dGraph.log(Globals.logStatistics, "[SPARSE][AUDIT] no tour found on dense instance");
+			return;
 		}
+		long sparseLength = dense.tourLength(sparseTour);
+		Metrics.counter("sparse.audits").increment();
+		dGraph.log(Globals.logStatistics, "[SPARSE][AUDIT] dense tour length " + run.length + " sparse tour length " + sparseLength
+				+ " (" + String.format("%+.2f", 100.0 * (sparseLength - run.length) / Math.max(1, run.length)) + "%)");
+	}
+
+	/**
+	 * @param key sample unit, e.g. sentence id and run
+	 * @param rate fraction of units in sample
+	 * @return true if unit is in sample, always the same for the same key
+	 */
+	static boolean sampled(String key, double rate) {
+		int permille = (int) Math.round(rate * 1000);
+		return permille > 0 && Math.floorMod(key.hashCode(), 1000) < permille;
+	}
+
+	/**
+	 * Run solver once on an instance already saved as filename.gtsp
+	 * @param instance
+	 * @param graph
+	 * @param filename instance name
+	 * @param runName name of solver script and tour
+	 * @param member portfolio member index, solver seed is Globals.solverSeed + member
+	 * @return solver run, with null tour if no complete tour has been found
+	 */
+	private SolverRun solve(GtspInstance instance, JGraph graph, String filename, String runName, int member) {
+		SolverRun run = new SolverRun(runName, member, Globals.solverSeed + member);
+		// Solver processes are CPU-bound too: no more of them than permits, whatever the number of sentences
+		try {
+			this.cpuPermits.acquire();
+		} catch (InterruptedException e) {
+			// Cancelled portfolio member waiting for a permit
+			Thread.currentThread().interrupt();
+			return run;
+		}
+		long start = System.nanoTime();
+		try {
+			if (Globals.stubSolver) {
+				run.tour = StubGtspSolver.solve(instance);
+				run.length = instance.tourLength(run.tour);
+				run.elapsed = Duration.ofNanos(Metrics.stop("solve", start));
+				Metrics.counter("solver.runs").increment();
+				return run;
+			}
+			this.setTSPSolver(filename, runName, run.seed);
+			run.completed = this.runSolver(runName, graph);
+		} finally {
+			this.cpuPermits.release();
+		}
+		run.elapsed = Duration.ofNanos(Metrics.stop("solve", start));
+		Metrics.counter("solver.runs").increment();
+		if (Thread.currentThread().isInterrupted()) {
+			// Cancelled portfolio member, tour is not needed
+			return run;
+		}
+		long parse = System.nanoTime();
+		int[] tour = this.readTour(graph, runName);
+		Metrics.stop("parse", parse);
+		if (tour != null && tour.length != instance.getClustersCount()) {
+			// Killed while writing the tour
+			tour = null;
+		}
+		if (tour != null) {
+			run.tour = tour;
+			run.length = instance.tourLength(tour);
+		}
+		return run;
+	}
+
+	/**
+	 * Run Globals.portfolioSize solvers with different seeds at the same time, shortest tour wins
+	 * (lowest seed on ties). Remaining runs are cancelled when Globals.portfolioTargetLength is reached
+	 * @param instance
+	 * @param graph
+	 * @param filename instance name
+	 * @return best run
+	 */
+	private SolverRun solvePortfolio(final GtspInstance instance, final JGraph graph, final String filename) {
+		CompletionService<SolverRun> members = new ExecutorCompletionService<SolverRun>(this.portfolioExecutor);
+		ArrayList<Future<SolverRun>> futures = new ArrayList<Future<SolverRun>>();
+		for (int i = 0; i < Globals.portfolioSize; i++) {
+			final int member = i;
+			futures.add(members.submit(new Callable<SolverRun>() {
+				@Override
+				public SolverRun call() {
+					return solve(instance, graph, filename, filename + "_p" + member, member);
+				}
+			}));
+		}
+		SolverRun best = null;
+		boolean completed = true;
+		Duration elapsed = Duration.ZERO;
+		try {
+			for (int i = 0; i < futures.size(); i++) {
+				SolverRun run = members.take().get();
+				completed = completed && run.completed;
+				if (run.elapsed.compareTo(elapsed) > 0) {
+					elapsed = run.elapsed;
+				}
+				if (run.tour != null && (best == null || run.length < best.length 
+						|| (run.length == best.length && run.member < best.member))) {
+					best = run;
+				}
+				if (best != null && Globals.portfolioTargetLength > 0 && best.length <= Globals.portfolioTargetLength) {
+					graph.log(Globals.logInfo, "[PORTFOLIO] target length reached, cancelling " + (futures.size() - i - 1) + " runs");
+					completed = true;
+					break;
+				}
+			}
+		} catch (InterruptedException | ExecutionException e) {
+			System.err.print(Thread.currentThread().getStackTrace()[1].getMethodName()+" threw: ");
+			System.err.println(e);
+		}
+		for (Future<SolverRun> future : futures) {
+			future.cancel(true);
+		}
+		if (best == null) {
+			SolverRun run = new SolverRun(filename, -1, -1);
+			run.completed = completed;
+			run.elapsed = elapsed;
+			return run;
+		}
+		this.portfolioWins.incrementAndGet(best.member);
+		graph.log(Globals.logStatistics, "[PORTFOLIO] winner member " + best.member + " seed " + best.seed 
+				+ " length " + best.length + " of " + futures.size() + " runs");
+		return best;
+	}
+
+	ArrayList<JNode> getSensesFromInstances(ArrayList<InputInstance> instances) {
+		return this.getSensesFromInstances(instances, null);
 	}
 
-	private ArrayList<JNode> getSensesFromInstances(ArrayList<InputInstance> instances) {
+	private ArrayList<JNode> getSensesFromInstances(ArrayList<InputInstance> instances, DocumentContext document) {
 		ArrayList<JNode> all = new ArrayList<JNode>();
 		for (InputInstance i : instances) {
-			all.addAll(this.getSensesFromInstance(i));
+			all.addAll(this.getSensesFromInstance(i, document));
 		}
 		return all;
 	}
 
-	private ArrayList<JNode> getSensesFromInstance(InputInstance input) {
+	private ArrayList<JNode> getSensesFromInstance(InputInstance input, DocumentContext document) {
 		ArrayList<JNode> senses = new ArrayList<JNode>();
-		for(IWord word : this.wordnet.getWordsList(input.lemma, input.pos)) {
+		List<IWord> words = document != null ? document.getWordsList(this.wordnet, input.lemma, input.pos)
+				: this.wordnet.getWordsList(input.lemma, input.pos);
+		for(IWord word : words) {
 			JNode v = new JNode(word, input);
 			senses.add(v);
 		}
@@ -198,7 +860,7 @@ public class JExecutor {
 	 * @param scores
 	 * @return map<cluster, sense> which has disambiguated one sense per cluster
 	 */
-	private Map<Integer, JNode> disambiguateByCentrality(JGraph graph, JGraph graphD) {
+	Map<Integer, JNode> disambiguateByCentrality(JGraph graph, JGraph graphD) {
 		
 		Map<Integer, JNode> disambiguationMap = new HashMap<Integer, JNode>();
 		// Readable results
@@ -218,9 +880,11 @@ public class JExecutor {
 				disambiguationMap.put(sentenceIndex, v);
 			}
 		}
-		String log = this.logSameCentralitiesNodes(disambiguationMap, array);
-		graph.log(Globals.logInfo, log);
-		graphD.log(Globals.logInfo, log);
+		if (EventLogger.isEnabled(Globals.logInfo)) {
+			String log = this.logSameCentralitiesNodes(disambiguationMap, array);
+			graph.log(Globals.logInfo, log);
+			graphD.log(Globals.logInfo, log);
+		}
 		return disambiguationMap;
 	}
 
@@ -268,33 +932,33 @@ public class JExecutor {
 		}
 	}
 
-	private String printMapToFile(Map<Integer, JNode> disambiguationMap, String fileName) {
+	/**
+	 * @param disambiguationMap
+	 * @return chosen senses ordered by position in sentence, as logged for evaluation (built only if logged)
+	 */
+	Supplier<String> sentenceTerms(final Map<Integer, JNode> disambiguationMap) {
+		return new Supplier<String>() {
+			@Override
+			public String get() {
+				return formatSentenceTerms(disambiguationMap);
+			}
+		};
+	}
+
+	private String formatSentenceTerms(Map<Integer, JNode> disambiguationMap) {
 		if (disambiguationMap == null) {
 			return "";
 		}
-		// print Map ordered by key
-		String log = "[SENTENCE TERMS]\n";
-		synchronized (fileLock) {
-			String fileContent = "";
-			try {
-				PrintWriter keyFileWriter;
-				keyFileWriter = new PrintWriter(new FileWriter(Globals.resultsPath + fileName +Globals.resultsExt, true));
-				//sort word by their position in the text
-				SortedSet<Integer> keys = new TreeSet<>(disambiguationMap.keySet());
-				for (Integer key : keys) { 
-					JNode v = disambiguationMap.get(key);
-					if(v.getTermId() != null){
-						log += v.getTermId() + " " + v.getSenseKey() + " " + v.getCentrality() + "\n";
-						fileContent += v.getTermId()+" "+v.getSenseKey()+"\n";
-					}
-				}
-				keyFileWriter.write(fileContent);
-				keyFileWriter.close();
-			} catch (IOException e) {
-				e.printStackTrace();
+		StringBuilder log = new StringBuilder("[SENTENCE TERMS]\n");
+		//sort word by their position in the text
+		SortedSet<Integer> keys = new TreeSet<>(disambiguationMap.keySet());
+		for (Integer key : keys) { 
+			JNode v = disambiguationMap.get(key);
+			if(v.getTermId() != null){
+				log.append(v.getTermId()).append(" ").append(v.getSenseKey()).append(" ").append(v.getCentrality()).append("\n");
 			}
 		}
-		return log;
+		return log.toString();
 	}
 
 	/**
@@ -302,7 +966,7 @@ public class JExecutor {
 	 * @param oldMap: the map containing all the word of the sentence divided by POS
 	 * @return a map containing only the word having the "interesting" POS
 	 */
-	private ArrayList<InputInstance> mySelectPos(ArrayList<InputInstance> old){
+	ArrayList<InputInstance> mySelectPos(ArrayList<InputInstance> old){
 		
 		ArrayList<String> posTags = new ArrayList<String>();
 		String[] wordnetTags = {"NOUN", "VERB", "ADJ", "ADV"};
@@ -327,12 +991,15 @@ public class JExecutor {
 	 * * copy runGLKH helper script to runGLKH(graph id here)
 	 * * dynamically update configuration file
 	 * Change param of TSPSolver main file to set input and output files
+	 * @param filename instance name
+	 * @param runName name of solver script and output tour
+	 * @param seed solver seed
 	 */
-	private void setTSPSolver(String filename){
+	private void setTSPSolver(String filename, String runName, int seed){
 		
 		BufferedReader oldFileReader = null;
 		BufferedWriter newFileWriter = null;
-		String mySolverName = Globals.tspSolverFileName+filename;
+		String mySolverName = Globals.tspSolverFileName+runName;
 		
 		try {
 			
@@ -343,16 +1010,29 @@ public class JExecutor {
 			String line;
 			while ((line = oldFileReader.readLine()) != null) {
 				if (line.contains("par=TMP")){
-					line = "par=TMP/" + filename + ".pid$$.par";
+					line = "par=TMP/" + runName + ".pid$$.par";
 				}
 				if (line.contains("PROBLEM_FILE")){
 					line = "echo \"PROBLEM_FILE = " + Globals.GTSPLIBDirectory + filename +".gtsp\" > $par";
 				}
 				if (line.contains("OUTPUT_TOUR_FILE")){
-					line = "echo \"OUTPUT_TOUR_FILE = " + Globals.GTOURSDirectory + filename +".tour\" >> $par";
+					line = "echo \"OUTPUT_TOUR_FILE = " + Globals.GTOURSDirectory + runName +".tour\" >> $par";
 				}
 				if (line.contains("RUNS")) {
 					line = "echo \"RUNS = " + Globals.runs + "\" >> $par";
+					if (Globals.solverTimeLimit > 0) {
+						line += "\necho \"TIME_LIMIT = " + Globals.solverTimeLimit + "\" >> $par";
+					}
+				}
+				if (line.contains("SEED")) {
+					line = "echo \"SEED = " + seed + "\" >> $par";
+				}
+				if (line.startsWith("./GLKH")) {
+					// timeout signals the whole process group (GLKH runs LKH as a child process),
+					// both at time limit (0 = no limit) and when the script is terminated
+					int limit = Globals.solverTimeLimit > 0 ? Globals.solverTimeLimit + Globals.solverKillGrace : 0;
+					line = "timeout -s KILL " + limit + " " + line + " & solver=$!; "
+							+ "trap \"kill -TERM $solver\" TERM; wait $solver";
 				}
 				if (line.contains("PI_FILES")) {
 					//line = "echo \"PI_FILE = PI_FILES/" + Globals.fileName + "_" + id + ".pi\" >> $par";
@@ -374,8 +1054,13 @@ public class JExecutor {
 		}
 	}
 	
-	public String runSolver(String filename){
-		String rt = "";
+	/**
+	 * Run solver script and wait for it at most Globals.solverTimeLimit seconds (plus grace periods)
+	 * @param filename
+	 * @param graph where solver output is logged
+	 * @return false if solver has been stopped by time limit
+	 */
+	public boolean runSolver(String filename, JGraph graph){
 		File solver = new File(Globals.tspSolverPathFileName+filename);
 		if (solver.exists()) {
 			try{
@@ -393,31 +1078,64 @@ public class JExecutor {
 				ProcessBuilder process = new ProcessBuilder("./" + Globals.tspSolverFileName+filename);
 				process.directory(new File(Globals.tspSolverHomeDir));
 
+				Instant start = Instant.now();
+				Object trace = Tracing.begin(Tracing.solver);
 				Process p = process.start();
-				//get the error stream
-				InputStream is = p.getErrorStream();
-				String errorStream = this.getProcessOutput(is);
-				String output = this.getProcessOutput(p.getInputStream());
-
-				if (errorStream.length() > 1) {
-					rt.concat(errorStream);
+				// Read both streams while waiting, solver would block on a full pipe
+				Future<String> errorStream = this.readProcessOutput(p.getErrorStream());
+				Future<String> output = this.readProcessOutput(p.getInputStream());
+				boolean finished = true;
+				try {
+					if (Globals.solverTimeLimit > 0) {
+						finished = p.waitFor(Globals.solverTimeLimit + 2 * Globals.solverKillGrace, TimeUnit.SECONDS);
+						if (!finished) {
+							p.destroyForcibly();
+						}
+					} else {
+						p.waitFor();
+					}
+				} catch (InterruptedException e) {
+					// Cancelled (e.g. portfolio target reached): terminate script, it stops the solver
+					p.destroy();
+					Thread.currentThread().interrupt();
+					Tracing.end(trace, graph, graph.vertexSet().size(), graph.edgeSet().size(), Tracing.solverInterrupted);
+					return false;
 				}
-				if(Globals.solverVerbosity){
-					rt.concat(output);
+				Duration elapsed = Duration.between(start, Instant.now());
+				Tracing.end(trace, graph, graph.vertexSet().size(), graph.edgeSet().size(), finished ? p.exitValue() : Tracing.solverKilled);
+				if (finished) {
+					String error = errorStream.get();
+					if (error.length() > 1) {
+						graph.log(Globals.logInfo, error);
+					}
+					if(Globals.solverVerbosity){
+						graph.log(Globals.logInfo, output.get());
+					}
 				}
-			}catch (IOException e) {
+				if (!finished || (Globals.solverTimeLimit > 0 && elapsed.getSeconds() >= Globals.solverTimeLimit)) {
+					graph.log(Globals.logInfo, "[SOLVER] " + filename + " stopped by time limit after " + elapsed);
+					return false;
+				}
+			}catch (IOException | InterruptedException | ExecutionException e) {
 				System.err.print(Thread.currentThread().getStackTrace()[1].getMethodName()+" threw: ");
 				System.err.println(e);	
 			}
         } else {
-            rt.concat("Solver file does not exist");
             System.out.println("Solver file does not exist");
             System.exit(1);
         }
-		return rt;
+		return true;
+	}
+
+	private Future<String> readProcessOutput(final InputStream inputStream) {
+		return this.streamReaders.submit(new Callable<String>() {
+			@Override
+			public String call() {
+				return getProcessOutput(inputStream);
+			}
+		});
 	}
 
-	
 	/**
 	 * Prints the output of tspSolver script
 	 * @param inputStream
@@ -442,23 +1160,31 @@ public class JExecutor {
 	/**
 	 * Add nodes and edges to the graph by DFSing WordNet graph 
 	 * @param centralityGraph
+	 * @param depth
+	 * @param document may be null
 	 */
-	private void addDFSNodes(JGraph centralityGraph, int depth) {
+	private void addDFSNodes(JGraph centralityGraph, int depth, DocumentContext document) {
 		Set<JNode> nodes = centralityGraph.vertexSet();
-		Map<IWord, JNode> wordMap = new ConcurrentHashMap<IWord, JNode>();
-		Map<IWord, JNode> originalWordMap = new ConcurrentHashMap<IWord, JNode>();
-		// Create a map to better lookup words
-		for (JNode node : nodes) {
-			if (!wordMap.containsKey(node.getWord())) {
-				wordMap.put(node.getWord(), node);
-				originalWordMap.put(node.getWord(), node);
+		// Maps and path are reused: graph is expanded by this thread only
+		WorkerScratch scratch = WorkerScratch.acquire();
+		try {
+			Map<IWord, JNode> wordMap = scratch.wordMap;
+			Map<IWord, JNode> originalWordMap = scratch.originalWordMap;
+			// Create a map to better lookup words
+			for (JNode node : nodes) {
+				if (!wordMap.containsKey(node.getWord())) {
+					wordMap.put(node.getWord(), node);
+					originalWordMap.put(node.getWord(), node);
+				}
+			}
+			
+			for (JNode node : originalWordMap.values()) {
+				// Every DFS leaves path empty
+				this.computeDFS(centralityGraph, depth, originalWordMap, wordMap, scratch.path, node, node.getWord(), document);
 			}
+		} finally {
+			scratch.release();
 		}
-		
-		for (JNode node : originalWordMap.values()) {
-			Stack<IWord> path = new Stack<IWord>();
-			this.computeDFS(centralityGraph, depth, originalWordMap, wordMap, path, node, node.getWord());
-		}		
 	}
 
 	/**
@@ -466,13 +1192,16 @@ public class JExecutor {
 	 * @param centralityGraph
 	 * @param depth
 	 * @param wordMap
-	 * @param path
+	 * @param path words from node to current, bottom first
 	 * @param node
+	 * @param current
+	 * @param document may be null
 	 */
-	private void computeDFS(JGraph centralityGraph, int depth, Map<IWord, JNode> originalWordMap, Map<IWord, JNode> wordMap, Stack<IWord> path, JNode node, IWord current) {
+	private void computeDFS(JGraph centralityGraph, int depth, Map<IWord, JNode> originalWordMap, Map<IWord, JNode> wordMap, ArrayList<IWord> path, JNode node, IWord current, DocumentContext document) {
 		if (depth == 0)
 			return;
-		for (IWord w : wordnet.getAllRelatedWords(current)) {
+		List<IWord> related = document != null ? document.getAllRelatedWords(this.wordnet, current) : this.wordnet.getAllRelatedWords(current);
+		for (IWord w : related) {
 			// Do not create edges between words that disambiguate the same sentence word (index)
 			if (originalWordMap.containsKey(w)) {
 				JNode last = wordMap.get(w);
@@ -499,44 +1228,14 @@ public class JExecutor {
 					}
 				}	
 			} else {
-				path.push(w);
-				this.computeDFS(centralityGraph, depth-1, originalWordMap, wordMap, path, node, w);
-				path.pop();
+				path.add(w);
+				this.computeDFS(centralityGraph, depth-1, originalWordMap, wordMap, path, node, w, document);
+				path.remove(path.size() - 1);
 			}
 		}
 		
 	}
 
-	/**
-	 * Set edge weight between every node in the graph as the centrality mean between these nodes
-	 * @param graph
-	 */
-	private void createEdgesByCentrality (JGraph graph) {
-		Set<JNode> nodes = graph.vertexSet();
-		for (JNode n1 : nodes) {
-			for (JNode n2 : nodes) {
-				if (n1.equals(n2))
-					continue;
-				if (n1.getSentenceIndex() != n2.getSentenceIndex()) {
-					// Insert distance instead of weight here by 1 / weight (weight is in [0,1]
-					// Multiply by precision
-					double mean = JNode.mean(n1, n2);
-					// Globals.precision let me lose only little info (decimal values)
-					double distance = Math.round(Globals.precision * (1 - mean));
-					if (distance == 0.0) {
-						// Centrality mean -> 1 set weight to 1
-						distance = 1;
-					}
-					DefaultWeightedEdge e = graph.addEdge(n1, n2);
-					// Edge already exists
-					if (e == null)
-						e = graph.getEdge(n1, n2);
-					graph.setEdgeWeight(e, distance);
-				}
-			}
-		}	
-	}
-
 	/**
 	 * Create an edge between every node in the graph and weigh this edge
 	 * @param graph
@@ -579,62 +1278,129 @@ public class JExecutor {
 	private Map<JNode, Double> computeDegreeCentrality(JGraph graph) {
 		DegreeCentrality<JNode, DefaultWeightedEdge> ec = new DegreeCentrality<JNode, DefaultWeightedEdge>(graph);
 		Map<JNode, Double> scores = ec.calculate().getRaw();
-		this.assignScores(graph, scores);
 		return scores;
 	}
 
 	private Map<JNode, Double> computeIterativePageRankCentrality(JGraph graph) {
 		PageRank<JNode, DefaultWeightedEdge> cc = new PageRank<JNode, DefaultWeightedEdge>(graph);
 		Map<JNode, Double> scores = cc.getScores();
-		this.assignScores(graph, scores);
 		return scores;
 	}
 	
 	private Map<JNode, Double> computeEigenvectorCentrality(JGraph graph) {
 		EigenvectorCentrality<JNode, DefaultWeightedEdge> ec = new EigenvectorCentrality<JNode, DefaultWeightedEdge>(graph);
 		Map<JNode, Double> scores = ec.calculate().getRaw();
-		this.assignScores(graph, scores);
 		return scores;
 	}
 
-	private Map<JNode, Double> computeKppClosenessCentrality(JGraph graph) {
-		KppClosenessCentrality<JNode, DefaultWeightedEdge> kc = new KppClosenessCentrality<JNode, DefaultWeightedEdge>(graph);
-		Map<JNode, Double> scores = kc.calculate().getRaw();
-		this.assignScores(graph, scores);
-		return scores;
+	/**
+	 * Same scores of KppClosenessCentrality: edges have unit weight, so shortest paths are found by a
+	 * breadth first search from every node on reused arrays instead of the n² Floyd-Warshall matrix
+	 * @param graph
+	 * @return node -> closeness
+	 */
+	Map<JNode, Double> computeKppClosenessCentrality(JGraph graph) {
+		Set<JNode> vertices = graph.vertexSet();
+		int size = vertices.size();
+		WorkerScratch scratch = WorkerScratch.acquire();
+		try {
+			Map<JNode, Integer> index = scratch.vertexIndex;
+			for (JNode v : vertices) {
+				index.put(v, index.size());
+			}
+			// Adjacency lists: neighbours of i are targets[offsets[i]] to targets[offsets[i + 1] - 1]
+			int[] offsets = scratch.ints(0, size + 1);
+			int[] targets = scratch.ints(1, 2 * graph.edgeSet().size());
+			int t = 0;
+			int i = 0;
+			for (JNode v : vertices) {
+				offsets[i++] = t;
+				for (DefaultWeightedEdge e : graph.edgesOf(v)) {
+					if (graph.getEdgeWeight(e) != 1.0) {
+						return new KppClosenessCentrality<JNode, DefaultWeightedEdge>(graph).calculate().getRaw();
+					}
+					JNode u = graph.getEdgeSource(e);
+					targets[t++] = index.get(u == v ? graph.getEdgeTarget(e) : u);
+				}
+			}
+			offsets[size] = t;
+			int[] distance = scratch.ints(2, size);
+			int[] queue = scratch.ints(3, size);
+			Map<JNode, Double> scores = new HashMap<JNode, Double>();
+			int source = 0;
+			for (JNode v : vertices) {
+				for (int k = 0; k < size; k++) {
+					distance[k] = -1;
+				}
+				distance[source] = 0;
+				int head = 0;
+				int tail = 0;
+				queue[tail++] = source;
+				while (head < tail) {
+					int u = queue[head++];
+					for (int n = offsets[u]; n < offsets[u + 1]; n++) {
+						if (distance[targets[n]] < 0) {
+							distance[targets[n]] = distance[u] + 1;
+							queue[tail++] = targets[n];
+						}
+					}
+				}
+				// Sum in vertex order, as KppClosenessCentrality
+				double sum = 0.0;
+				for (int k = 0; k < size; k++) {
+					if (k != source && distance[k] > 0) {
+						sum += 1.0 / distance[k];
+					}
+				}
+				scores.put(v, sum / size);
+				source++;
+			}
+			return scores;
+		} finally {
+			scratch.release();
+		}
 	}
 
-	private void assignScores(JGraph graph, Map<JNode, Double> scores) {
-		for (Entry<JNode, Double> entry : scores.entrySet()) {
-			entry.getKey().setCentrality(entry.getValue());
+	/**
+	 * Take the tour (1-based vertex indexes) and create the map that specifies the sense chosen
+	 * for each word of the sentence
+	 * @param instance
+	 * @param tour
+	 */
+	private Map<Integer, JNode> generateOutputFile(GtspInstance instance, int[] tour){
+		if (tour == null)
+			return null;
+		Map<Integer, JNode> disambiguationMap = new HashMap<Integer, JNode>();
+		for (int index : tour) {
+			JNode v = instance.getVertex(index-1);
+			disambiguationMap.put(v.getSentenceIndex(), v);
 		}
+		return disambiguationMap;
 	}
 
 	/**
-	 * Take the solution given by the tsp solver and create an output file that specifies the sense chosen
-	 * for each word of the sentence
+	 * Read the solution given by the tsp solver
 	 * @param graph
+	 * @param filename
+	 * @return tour as 1-based vertex indexes, null if tour file can't be read
 	 */
-	private Map<Integer, JNode> generateOutputFile(JGraph graph, String filename){
+	private int[] readTour(JGraph graph, String filename){
 		try {
 			//open reader for the tspSolver output file
 			BufferedReader tourFileReader = new BufferedReader(
 					new FileReader(Globals.tspSolverPathToGTOURS+filename+".tour"));
 			
-			Map<Integer, JNode> disambiguationMap = new HashMap<Integer, JNode>();
+			ArrayList<Integer> indexes = new ArrayList<Integer>();
 			String line;
 			boolean read = false;
 			
 			//read the tspSolverOutput file
-			ArrayList<JNode> array = graph.getVertexArray();
 			while((line = tourFileReader.readLine()) != null){
 				if(line.equals("-1")) {
 					read = false;
 				}
 				if(read){
-					int index = Integer.parseInt(line.trim())-1;
-					JNode v = array.get(index);
-					disambiguationMap.put(v.getSentenceIndex(), v);
+					indexes.add(Integer.parseInt(line.trim()));
 				}
 				if(line.equalsIgnoreCase("TOUR_SECTION")){
 					read = true;
@@ -649,9 +1415,12 @@ public class JExecutor {
 			}
 			
 			tourFileReader.close();
-			//open writer to write results
-			return disambiguationMap;
-		} catch (IOException e){
+			int[] tour = new int[indexes.size()];
+			for (int i = 0; i < tour.length; i++) {
+				tour[i] = indexes.get(i);
+			}
+			return tour;
+		} catch (IOException | NumberFormatException e){
 			System.err.print(Thread.currentThread().getStackTrace()[1].getMethodName()+" threw: ");
 			System.err.println(e);
 		}
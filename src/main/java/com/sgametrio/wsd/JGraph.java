@@ -8,6 +8,7 @@ import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Supplier;
 
 import org.jgrapht.alg.scoring.ClosenessCentrality;
 import org.jgrapht.graph.DefaultWeightedEdge;
@@ -19,7 +20,12 @@ public class JGraph extends SimpleWeightedGraph<JNode, DefaultWeightedEdge> {
 	private int id;
 	private String sentenceId = "";
 	private String sentence = "";
-	private String log = "";
+	private String run = "";
+	private int depth = 0;
+	private String centrality = null;
+	private int solverTimeouts = 0;
+	// false: events are not sent to EventLogger (single sentence disambiguations)
+	private boolean recordEvents = true;
 
 	public JGraph() {
 		super(DefaultWeightedEdge.class);
@@ -33,23 +39,39 @@ public class JGraph extends SimpleWeightedGraph<JNode, DefaultWeightedEdge> {
 	}
 	
 	/**
-	 * Adds log to local variable and choose different actions based on severity
+	 * Log an event of this graph, choosing different actions based on severity
 	 * @param severity
 	 * @param log
 	 */
-	public void log(int severity, String log) {
+	public void log(int severity, final String log) {
+		this.log(severity, new Supplier<String>() {
+			@Override
+			public String get() {
+				return log;
+			}
+		});
+	}
+
+	/**
+	 * Log an event of this graph, message is built only if severity is enabled
+	 * @param severity
+	 * @param message
+	 */
+	public void log(int severity, Supplier<String> message) {
+		if (!EventLogger.isEnabled(severity))
+			return;
+		String log = message.get();
+		if (this.recordEvents) {
+			EventLogger.log(severity, this.run, this.sentenceId, log);
+		}
 		if (Globals.developmentLogs) {
-			this.log += log + "\n";
 			if (severity >= Globals.logWarning) {
 				System.out.println("[GRAPH " + this.getSentenceId() + "]" + log);
-			} 
-		} else if (severity ==  Globals.logSevere) {
-			this.log += log + "\n";
+			}
+		} else if (severity == Globals.logSevere) {
 			System.out.println(log);
-			this.logOnFile(this.getSentenceId());
+			EventLogger.close();
 			System.exit(1);
-		} else if (severity == Globals.logStatistics) {
-			this.log += log + "\n";
 		}
 	}
 
@@ -59,21 +81,6 @@ public class JGraph extends SimpleWeightedGraph<JNode, DefaultWeightedEdge> {
 		return scores;
 	}
 	
-	/**
-	 * Logs log content to file
-	 */
-	public void logOnFile(String filename) {
-		if (this.log.length() > 0) {
-			try {
-				FileWriter logFile = new FileWriter(Globals.logsPath + filename + ".log");
-				logFile.write(this.log);
-				logFile.close();
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
-		}
-	}
-	
 	public String getSentenceId() {
 		return sentenceId;
 	}
@@ -91,6 +98,14 @@ public class JGraph extends SimpleWeightedGraph<JNode, DefaultWeightedEdge> {
 	}
 
 	public void exportCustomGml(String filename) {
+		this.exportCustomGml(filename, null);
+	}
+
+	/**
+	 * @param filename
+	 * @param scores centrality of nodes, e.g. of a shared expanded graph; null for centrality of nodes
+	 */
+	public void exportCustomGml(String filename, Map<JNode, Double> scores) {
 		if (!Globals.saveGml)
 			return;
 		// Assuming path to file exists
@@ -100,7 +115,11 @@ public class JGraph extends SimpleWeightedGraph<JNode, DefaultWeightedEdge> {
 				+ "\tlabel \"" + getSentenceId() + "\"\n";
 		// Add nodes, and then edges
 		for (JNode v : vertexSet()) {
-			gml += v.toGML();
+			if (scores == null) {
+				gml += v.toGML();
+			} else {
+				gml += v.toGML(scores.get(v) != null ? scores.get(v) : 0.0);
+			}
 		}
 		for (DefaultWeightedEdge e : edgeSet()) {
 			gml += "\tedge [\n"
@@ -139,56 +158,25 @@ public class JGraph extends SimpleWeightedGraph<JNode, DefaultWeightedEdge> {
 		return this.getVertexArray().get(0);
 	}
 
-	public boolean saveToGTSP(String path, String filename) {
+	public boolean saveToGTSP(GtspInstance instance, String path, String filename) {
 		// Assuming path to file exists
-		Set<JNode> nodes = this.vertexSet();
-		Set<DefaultWeightedEdge> edges = this.edgeSet();
-		Map<Integer, Set<JNode>> clusters = this.getClusters();
-		int size = nodes.size();
+		int size = instance.size();
 		if (size == 0) {
 			log(Globals.logWarning, "Graph has no vertexes, cannot save to GTSP format");
 			return false;
 		}
-		if (clusters.size() == 1) {
+		if (instance.getClustersCount() == 1) {
 			log(Globals.logWarning, "Graph has only 1 cluster, don't save to GTSP and don't run solver");
 			return false;
 		}
-		int[][] matrix = this.getAdjacencyMatrix();
-		String content = "";
-		content += "NAME : " + filename + ".gtsp\n" ;
-		content += "TYPE : GTSP\n";
-		content += "COMMENT : " + getSentenceId() + " " + getSentence().replaceAll("\n", " ") + "\n";
-		content += "DIMENSION : "+ size +"\n";
-		content += "GTSP_SETS : "+ clusters.size() +"\n";
-		content += "EDGE_WEIGHT_TYPE : EXPLICIT \n";
-		content += "EDGE_WEIGHT_FORMAT : FULL_MATRIX \n";
-		content += "EDGE_WEIGHT_SECTION : \n";
-		// Prints edge weights
-		for(int row = 0; row < size; row++){
-			for(int col = 0; col < size; col++){
-				if (matrix[row][col] <= 0) {
-					log(Globals.logSevere, "[GTSP] Edge with weight < 0 : " + row + " " + col + " = " + matrix[row][col]);
-				}
-				content += matrix[row][col]+" ";
+		int[] distances = instance.getDistances();
+		for (int k = 0; k < distances.length; k++) {
+			if (distances[k] <= 0) {
+				log(Globals.logSevere, "[GTSP] Edge with weight < 0 : " + (k / size) + " " + (k % size) + " = " + distances[k]);
 			}
-			content += "\n";
 		}
-		content += "GTSP_SET_SECTION : \n";
-		int i = 0, j = 0;
-		for (Set<JNode> clusterNodes : clusters.values()) {
-			content += (i+1) + " ";
-			for (JNode node : clusterNodes) {
-				content += (j+1) + " "; 
-				j++;
-			}
-			content += "-1\n";
-			i++;
-		}
-		content += "EOF";
 		try {
-			BufferedWriter writer = new BufferedWriter(new FileWriter(path + filename+".gtsp"));
-			writer.write(content);
-			writer.close();
+			instance.write(path + filename + ".gtsp", filename, getSentenceId() + " " + getSentence().replaceAll("\n", " "));
 			log(Globals.logInfo, "Saved graph to " + path + filename + ".gtsp");
 			return true;
 		} catch (IOException e) {
@@ -196,26 +184,6 @@ public class JGraph extends SimpleWeightedGraph<JNode, DefaultWeightedEdge> {
 			return false;
 		}
 	}
-
-	private int[][] getAdjacencyMatrix() {
-		Set<JNode> nodes = this.vertexSet();
-		int size = nodes.size();
-		int[][] matrix = new int [size][size];
-		int i = 0;
-		for (JNode n1 : nodes) {
-			int j = 0;
-			for (JNode n2 : nodes) {
-				if (this.containsEdge(n1, n2)) {
-					matrix[i][j] = (int)this.getEdgeWeight(this.getEdge(n1, n2));
-				} else {
-					matrix[i][j] = Globals.precision;
-				}
-				j++;
-			}
-			i++;
-		}
-		return matrix;
-	}
 	
 	public ArrayList<JNode> getVertexArray() {
 		Map<Integer, Set<JNode>> nodes = getClusters();
@@ -238,7 +206,48 @@ public class JGraph extends SimpleWeightedGraph<JNode, DefaultWeightedEdge> {
 		return str;
 	}
 
-	public void resetLog() {
-		this.log = "";
+	public String getRun() {
+		return run;
+	}
+
+	/**
+	 * Record a solver run of this graph stopped by Globals.solverTimeLimit
+	 */
+	public void solverTimeout() {
+		this.solverTimeouts++;
+	}
+
+	public int getSolverTimeouts() {
+		return solverTimeouts;
+	}
+
+	public boolean isRecordingEvents() {
+		return recordEvents;
+	}
+
+	/**
+	 * @param recordEvents false to keep events of this graph out of EventLogger files
+	 */
+	public void setRecordEvents(boolean recordEvents) {
+		this.recordEvents = recordEvents;
+	}
+
+	public int getDepth() {
+		return depth;
+	}
+
+	public String getCentrality() {
+		return centrality;
+	}
+
+	/**
+	 * @param run configuration this graph is disambiguated with, logged with every event
+	 * @param depth
+	 * @param centrality
+	 */
+	public void setConfiguration(String run, int depth, String centrality) {
+		this.run = run;
+		this.depth = depth;
+		this.centrality = centrality;
 	}
 }
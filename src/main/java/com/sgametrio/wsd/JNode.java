@@ -36,6 +36,16 @@ public class JNode {
 		this.termId = instance.id;
 	}
 	
+	/**
+	 * Copy of a disambiguation node with a new id and no centrality
+	 * @param node
+	 */
+	public JNode(JNode node) {
+		this(node.word);
+		this.sentenceIndex = node.sentenceIndex;
+		this.termId = node.termId;
+	}
+	
 	public static double mean(JNode n1, JNode n2) {
 		double mean = (n1.centrality + n2.centrality) / 2;
 		return mean;
@@ -89,11 +99,19 @@ public class JNode {
 	}
 
 	public String toGML() {
+		return this.toGML(this.getCentrality());
+	}
+
+	/**
+	 * @param centrality written instead of centrality of this node
+	 * @return GML node
+	 */
+	public String toGML(double centrality) {
 		String gml = "";
 		gml += "\tnode [\n"
 				+ "\t\tid " + this.getId() + "\n"
 				+ "\t\tlabel \"" + this.getWord().getLemma() + "_" + this.getSentenceIndex() + "-" + this.getId() + "\"\n"
-				+ "\t\tcentrality \"" + this.getCentrality() + "\"\n"
+				+ "\t\tcentrality \"" + centrality + "\"\n"
 				+ "\t\tgloss_key \"" + this.getSenseKey() + "\"\n"
 				+ "\t\tgloss \"" + this.getWord().getSynset().getGloss().replaceAll("\"", "") + "\"\n"
 				+ "\t]\n";
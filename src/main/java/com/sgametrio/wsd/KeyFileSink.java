@@ -0,0 +1,239 @@
+package com.sgametrio.wsd;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Writes results to key files (one per configuration): <path><prefix>_<configuration><Globals.resultsExt>,
+ * one "<instance id> <sense key>" line per instance.
+ * Workers only enqueue results, every file has a single writer thread that keeps it open and writes in batches
+ * of at most Globals.resultBatchSize results. On close (or JVM shutdown) queues are flushed and every file is
+ * rewritten ordered by sentence id, so key files don't depend on threads scheduling.
+ * With a journal, every batch is synced to disk and then its units are recorded as done.
+ */
+public class KeyFileSink implements ResultSink {
+	private final String path;
+	private final String prefix;
+	private final ProgressJournal journal;
+	private final Map<String, KeyFileWriter> writers = new ConcurrentHashMap<String, KeyFileWriter>();
+	private final Thread shutdownHook;
+	private boolean closed = false;
+
+	/**
+	 * @param path results directory
+	 * @param prefix usually dataset name
+	 */
+	public KeyFileSink(String path, String prefix) {
+		this(path, prefix, null);
+	}
+
+	/**
+	 * @param path results directory
+	 * @param prefix usually dataset name
+	 * @param journal records written units, may be null
+	 */
+	public KeyFileSink(String path, String prefix, ProgressJournal journal) {
+		this.path = path;
+		this.prefix = prefix;
+		this.journal = journal;
+		this.shutdownHook = new Thread("key-files-shutdown") {
+			@Override
+			public void run() {
+				flushAndClose();
+			}
+		};
+		Runtime.getRuntime().addShutdownHook(this.shutdownHook);
+	}
+
+	@Override
+	public void accept(DisambiguationResult result) {
+		StringBuilder content = new StringBuilder();
+		for (JNode v : result.getSenses().values()) {
+			content.append(v.getTermId()).append(' ').append(v.getSenseKey()).append('\n');
+		}
+		String file = this.getFile(result);
+		KeyFileWriter writer = this.writers.get(file);
+		if (writer == null) {
+			synchronized (this.writers) {
+				writer = this.writers.get(file);
+				if (writer == null) {
+					writer = new KeyFileWriter(new File(file), this.journal);
+					writer.start();
+					this.writers.put(file, writer);
+				}
+			}
+		}
+		// Unbounded queue: never blocks
+		writer.queue.offer(new Block(result.getSentenceId(), content.toString()));
+	}
+
+	/**
+	 * @param result
+	 * @return key file of result configuration
+	 */
+	public String getFile(DisambiguationResult result) {
+		return path + prefix + "_" + result.getConfiguration() + Globals.resultsExt;
+	}
+
+	/**
+	 * Flush all queues and order files by sentence id. Results accepted after close are not written
+	 */
+	@Override
+	public void close() {
+		this.flushAndClose();
+		try {
+			Runtime.getRuntime().removeShutdownHook(this.shutdownHook);
+		} catch (IllegalStateException e) {
+			// JVM is already shutting down, hook has flushed
+		}
+	}
+
+	private synchronized void flushAndClose() {
+		if (this.closed)
+			return;
+		this.closed = true;
+		synchronized (this.writers) {
+			for (KeyFileWriter writer : this.writers.values()) {
+				writer.queue.offer(Block.END);
+			}
+			for (KeyFileWriter writer : this.writers.values()) {
+				try {
+					writer.join();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Lines of one result, only their position in file is kept once written
+	 */
+	private static class Block {
+		static final Block END = new Block(null, null);
+		final String sentenceId;
+		String content;
+		long offset;
+		int length;
+
+		Block(String sentenceId, String content) {
+			this.sentenceId = sentenceId;
+			this.content = content;
+		}
+	}
+
+	private static class KeyFileWriter extends Thread {
+		private final File file;
+		private final ProgressJournal journal;
+		// Run name of journal units, key file name without extension
+		private final String run;
+		private final BlockingQueue<Block> queue = new LinkedBlockingQueue<Block>();
+		// Position of every written block, to sort file on close
+		private final List<Block> written = new ArrayList<Block>();
+
+		KeyFileWriter(File file, ProgressJournal journal) {
+			super("key-file-" + file.getName());
+			this.setDaemon(true);
+			this.file = file;
+			this.journal = journal;
+			this.run = file.getName().substring(0, file.getName().length() - Globals.resultsExt.length());
+		}
+
+		@Override
+		public void run() {
+			List<Block> batch = new ArrayList<Block>();
+			try {
+				// Append: file may contain results of a previous run
+				long offset = file.length();
+				FileOutputStream fileOut = new FileOutputStream(file, true);
+				OutputStream out = new BufferedOutputStream(fileOut);
+				List<String> sentences = new ArrayList<String>();
+				boolean end = false;
+				while (!end) {
+					batch.add(queue.take());
+					queue.drainTo(batch, Globals.resultBatchSize - 1);
+					for (Block block : batch) {
+						if (block == Block.END) {
+							end = true;
+							break;
+						}
+						byte[] bytes = block.content.getBytes(StandardCharsets.UTF_8);
+						out.write(bytes);
+						// Sorting reads blocks back from file: results are not kept in memory
+						block.content = null;
+						block.offset = offset;
+						block.length = bytes.length;
+						offset += bytes.length;
+						written.add(block);
+						sentences.add(block.sentenceId);
+					}
+					out.flush();
+					if (journal != null && !sentences.isEmpty()) {
+						fileOut.getFD().sync();
+						journal.completed(sentences, run);
+					}
+					sentences.clear();
+					batch.clear();
+				}
+				out.close();
+				this.sort();
+			} catch (IOException e) {
+				e.printStackTrace();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		/**
+		 * Rewrite blocks ordered by sentence id (stable: same sentence keeps arrival order).
+		 * Content preceding first block is kept in place
+		 * @throws IOException
+		 */
+		private void sort() throws IOException {
+			List<Block> sorted = new ArrayList<Block>(written);
+			Collections.sort(sorted, new Comparator<Block>() {
+				@Override
+				public int compare(Block b1, Block b2) {
+					return b1.sentenceId.compareTo(b2.sentenceId);
+				}
+			});
+			if (sorted.equals(written) || written.isEmpty())
+				return;
+			File tmp = new File(file.getPath() + ".tmp");
+			RandomAccessFile in = new RandomAccessFile(file, "r");
+			FileOutputStream tmpOut = new FileOutputStream(tmp);
+			OutputStream out = new BufferedOutputStream(tmpOut);
+			byte[] head = new byte[(int) written.get(0).offset];
+			in.readFully(head);
+			out.write(head);
+			for (Block block : sorted) {
+				byte[] bytes = new byte[block.length];
+				in.seek(block.offset);
+				in.readFully(bytes);
+				out.write(bytes);
+			}
+			out.flush();
+			tmpOut.getFD().sync();
+			out.close();
+			in.close();
+			// Atomic: killed at any time (e.g. shutdown hook), file has either all blocks or the sorted ones
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+	}
+}
@@ -0,0 +1,321 @@
+package com.sgametrio.wsd;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * In-process metrics: stage latency histograms (System.nanoTime), size histograms, counters and gauges.
+ * Every metric is registered on the platform MBean server (domain com.sgametrio.wsd) when first used,
+ * so it can be watched live with jconsole/VisualVM; summary() reports all of them at the end of a run.
+ */
+public class Metrics {
+	public static final String domain = "com.sgametrio.wsd";
+	private static final Map<String, Histogram> histograms = new ConcurrentHashMap<String, Histogram>();
+	private static final Map<String, Counter> counters = new ConcurrentHashMap<String, Counter>();
+	private static final Map<String, Gauge> gauges = new ConcurrentHashMap<String, Gauge>();
+
+	/**
+	 * @param stage
+	 * @return latency histogram of stage, values in nanoseconds
+	 */
+	public static Histogram stage(String stage) {
+		Histogram histogram = histograms.get(stage);
+		if (histogram == null) {
+			synchronized (histograms) {
+				histogram = histograms.get(stage);
+				if (histogram == null) {
+					histogram = new Histogram(true);
+					register("Stage", stage, histogram);
+					histograms.put(stage, histogram);
+				}
+			}
+		}
+		return histogram;
+	}
+
+	/**
+	 * @param name
+	 * @return histogram of sizes (e.g. vertexes of graphs)
+	 */
+	public static Histogram size(String name) {
+		Histogram histogram = histograms.get(name);
+		if (histogram == null) {
+			synchronized (histograms) {
+				histogram = histograms.get(name);
+				if (histogram == null) {
+					histogram = new Histogram(false);
+					register("Size", name, histogram);
+					histograms.put(name, histogram);
+				}
+			}
+		}
+		return histogram;
+	}
+
+	public static Counter counter(String name) {
+		Counter counter = counters.get(name);
+		if (counter == null) {
+			synchronized (counters) {
+				counter = counters.get(name);
+				if (counter == null) {
+					counter = new Counter();
+					register("Counter", name, counter);
+					counters.put(name, counter);
+				}
+			}
+		}
+		return counter;
+	}
+
+	public static Gauge gauge(String name) {
+		Gauge gauge = gauges.get(name);
+		if (gauge == null) {
+			synchronized (gauges) {
+				gauge = gauges.get(name);
+				if (gauge == null) {
+					gauge = new Gauge();
+					register("Gauge", name, gauge);
+					gauges.put(name, gauge);
+				}
+			}
+		}
+		return gauge;
+	}
+
+	/**
+	 * Record time elapsed since start in stage histogram
+	 * @param stage
+	 * @param start System.nanoTime() at stage start
+	 * @return elapsed nanoseconds
+	 */
+	public static long stop(String stage, long start) {
+		long elapsed = System.nanoTime() - start;
+		stage(stage).record(elapsed);
+		return elapsed;
+	}
+
+	/**
+	 * @return every metric, ordered by name
+	 */
+	public static String summary() {
+		StringBuilder summary = new StringBuilder("--- Metrics ---\n");
+		for (Map.Entry<String, Histogram> entry : new TreeMap<String, Histogram>(histograms).entrySet()) {
+			Histogram h = entry.getValue();
+			summary.append(String.format("%-28s count %8d mean %10.2f p50 %10.2f p90 %10.2f p99 %10.2f max %10.2f %s%n",
+					entry.getKey(), h.getCount(), h.getMean(), h.getP50(), h.getP90(), h.getP99(), h.getMax(), h.getUnit()));
+		}
+		for (Map.Entry<String, Counter> entry : new TreeMap<String, Counter>(counters).entrySet()) {
+			summary.append(String.format("%-28s %d%n", entry.getKey(), entry.getValue().getValue()));
+		}
+		for (Map.Entry<String, Gauge> entry : new TreeMap<String, Gauge>(gauges).entrySet()) {
+			summary.append(String.format("%-28s %d (max %d)%n", entry.getKey(), entry.getValue().getValue(), entry.getValue().getMax()));
+		}
+		return summary.toString();
+	}
+
+	private static void register(String type, String name, Object mbean) {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName objectName = new ObjectName(domain + ":type=" + type + ",name=" + ObjectName.quote(name));
+			if (!server.isRegistered(objectName)) {
+				server.registerMBean(mbean, objectName);
+			}
+		} catch (JMException e) {
+			// Metric is still recorded and reported by summary
+			System.err.println("Metric " + name + " not exposed over JMX: " + e);
+		}
+	}
+
+	public interface HistogramMBean {
+		long getCount();
+		double getMean();
+		double getP50();
+		double getP90();
+		double getP99();
+		double getMax();
+		String getUnit();
+	}
+
+	/**
+	 * Log-linear histogram: 8 buckets for every power of 2, values are reported with at most 12.5% error
+	 */
+	public static class Histogram implements HistogramMBean {
+		private static final int subBuckets = 8;
+		private static final int subBits = 3;
+		private final AtomicLongArray buckets = new AtomicLongArray((64 - subBits + 1) * subBuckets);
+		private final LongAdder count = new LongAdder();
+		private final LongAdder sum = new LongAdder();
+		private final AtomicLong max = new AtomicLong();
+		// nanoseconds values are reported in milliseconds
+		private final boolean nanos;
+
+		/**
+		 * Histogram not registered (e.g. one per configuration), see stage and size for registered ones
+		 * @param nanos values are nanoseconds
+		 */
+		public Histogram(boolean nanos) {
+			this.nanos = nanos;
+		}
+
+		public void record(long value) {
+			if (value < 0)
+				value = 0;
+			buckets.incrementAndGet(bucket(value));
+			count.increment();
+			sum.add(value);
+			long current;
+			while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+				// retry
+			}
+		}
+
+		private static int bucket(long value) {
+			if (value < subBuckets)
+				return (int) value;
+			int exponent = 63 - Long.numberOfLeadingZeros(value);
+			int sub = (int) (value >>> (exponent - subBits)) & (subBuckets - 1);
+			return (exponent - subBits + 1) * subBuckets + sub;
+		}
+
+		/**
+		 * @return highest value of bucket
+		 */
+		private static long upperBound(int bucket) {
+			if (bucket < subBuckets)
+				return bucket;
+			int exponent = bucket / subBuckets + subBits - 1;
+			long lower = (long) (subBuckets + bucket % subBuckets) << (exponent - subBits);
+			return lower + (1L << (exponent - subBits)) - 1;
+		}
+
+		/**
+		 * @param p percentile in (0, 100]
+		 * @return value (raw unit) below which p% of values are
+		 */
+		public long percentile(double p) {
+			long total = count.sum();
+			if (total == 0)
+				return 0;
+			long rank = Math.max(1, (long) Math.ceil(p / 100 * total));
+			long seen = 0;
+			for (int b = 0; b < buckets.length(); b++) {
+				seen += buckets.get(b);
+				if (seen >= rank)
+					return Math.min(upperBound(b), max.get());
+			}
+			return max.get();
+		}
+
+		private double scale(double value) {
+			return nanos ? value / 1e6 : value;
+		}
+
+		@Override
+		public long getCount() {
+			return count.sum();
+		}
+
+		@Override
+		public double getMean() {
+			long n = count.sum();
+			return n == 0 ? 0 : scale((double) sum.sum() / n);
+		}
+
+		@Override
+		public double getP50() {
+			return scale(percentile(50));
+		}
+
+		@Override
+		public double getP90() {
+			return scale(percentile(90));
+		}
+
+		@Override
+		public double getP99() {
+			return scale(percentile(99));
+		}
+
+		@Override
+		public double getMax() {
+			return scale(max.get());
+		}
+
+		@Override
+		public String getUnit() {
+			return nanos ? "ms" : "";
+		}
+	}
+
+	public interface CounterMBean {
+		long getValue();
+	}
+
+	/**
+	 * Monotonic counter
+	 */
+	public static class Counter implements CounterMBean {
+		private final LongAdder value = new LongAdder();
+
+		public void increment() {
+			value.increment();
+		}
+
+		public void add(long n) {
+			value.add(n);
+		}
+
+		@Override
+		public long getValue() {
+			return value.sum();
+		}
+	}
+
+	public interface GaugeMBean {
+		long getValue();
+		long getMax();
+	}
+
+	/**
+	 * Current value, keeps the highest value seen
+	 */
+	public static class Gauge implements GaugeMBean {
+		private final AtomicLong value = new AtomicLong();
+		private final AtomicLong max = new AtomicLong();
+
+		public void set(long v) {
+			value.set(v);
+			this.updateMax(v);
+		}
+
+		public void add(long delta) {
+			this.updateMax(value.addAndGet(delta));
+		}
+
+		private void updateMax(long v) {
+			long current;
+			while (v > (current = max.get()) && !max.compareAndSet(current, v)) {
+				// retry
+			}
+		}
+
+		@Override
+		public long getValue() {
+			return value.get();
+		}
+
+		@Override
+		public long getMax() {
+			return max.get();
+		}
+	}
+}
@@ -0,0 +1,193 @@
+package com.sgametrio.wsd;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Durable record of finished units: a unit is a sentence disambiguated with one configuration
+ * (run = <dataset>_<centrality>_<depth>_<method>, same name of key file and log events).
+ * One "<sentence id>\t<run>" line per unit, appended and synced only after the unit result has been
+ * synced to its key file (KeyFileSink), so a journaled unit is never lost.
+ * Every start appends a "# logs <logs path>" line, to find events of previous runs when resuming:
+ * units journaled after it are units of that session, whose events are in that logs path
+ */
+public class ProgressJournal implements Closeable {
+	private static final String logsLine = "# logs ";
+	private final Set<String> done = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	// Units done by previous runs -> logs path of the session that journaled them
+	private final Map<String, String> resumed = new HashMap<String, String>();
+	private final List<String> previousLogs = new ArrayList<String>();
+	private final FileOutputStream out;
+
+	/**
+	 * Load units of previous runs (if any) and open journal for append
+	 * @param file
+	 * @throws IOException
+	 */
+	public ProgressJournal(String file) throws IOException {
+		this(file, true);
+	}
+
+	/**
+	 * Load units of a journal without writing it (e.g. journal of a shard to merge)
+	 * @param file
+	 * @return journal whose units are all resumed, completed() must not be called
+	 * @throws IOException
+	 */
+	public static ProgressJournal read(String file) throws IOException {
+		return new ProgressJournal(file, false);
+	}
+
+	private ProgressJournal(String file, boolean append) throws IOException {
+		File journal = new File(file);
+		if (journal.exists()) {
+			BufferedReader reader = new BufferedReader(new FileReader(journal));
+			String line;
+			String session = null;
+			while ((line = reader.readLine()) != null) {
+				if (line.startsWith(logsLine)) {
+					session = line.substring(logsLine.length());
+					this.previousLogs.add(session);
+				} else if (line.indexOf('\t') > 0) {
+					// A line cut by a crash matches no run
+					this.done.add(line);
+					// A unit redone after a crash is journaled once, by the session that finished it
+					this.resumed.put(line, session);
+				}
+			}
+			reader.close();
+		}
+		if (!append) {
+			this.out = null;
+			return;
+		}
+		boolean cut = false;
+		if (journal.length() > 0) {
+			RandomAccessFile last = new RandomAccessFile(journal, "r");
+			last.seek(journal.length() - 1);
+			cut = last.read() != '\n';
+			last.close();
+		}
+		this.out = new FileOutputStream(journal, true);
+		this.write((cut ? "\n" : "") + logsLine + Globals.logsPath + "\n");
+	}
+
+	/**
+	 * @param sentenceId
+	 * @param run
+	 * @return true if unit result is in its key file
+	 */
+	public boolean isDone(String sentenceId, String run) {
+		return this.done.contains(sentenceId + "\t" + run);
+	}
+
+	/**
+	 * @param sentenceId
+	 * @param run
+	 * @return true if unit has been done by a previous run
+	 */
+	public boolean isResumed(String sentenceId, String run) {
+		return this.resumed.containsKey(sentenceId + "\t" + run);
+	}
+
+	/**
+	 * @param sentenceId
+	 * @param run
+	 * @return logs path of the previous run that journaled the unit, its events are read only from there;
+	 * null if unit has not been done by a previous run
+	 */
+	public String getSession(String sentenceId, String run) {
+		return this.resumed.get(sentenceId + "\t" + run);
+	}
+
+	/**
+	 * Record units as done, call only when their results are synced
+	 * @param sentenceIds
+	 * @param run
+	 * @throws IOException
+	 */
+	public void completed(List<String> sentenceIds, String run) throws IOException {
+		StringBuilder lines = new StringBuilder();
+		for (String sentenceId : sentenceIds) {
+			lines.append(sentenceId).append('\t').append(run).append('\n');
+			this.done.add(sentenceId + "\t" + run);
+		}
+		this.write(lines.toString());
+	}
+
+	private synchronized void write(String lines) throws IOException {
+		this.out.write(lines.getBytes(StandardCharsets.UTF_8));
+		this.out.getFD().sync();
+	}
+
+	/**
+	 * @return number of units done
+	 */
+	public int size() {
+		return this.done.size();
+	}
+
+	/**
+	 * @return logs paths of previous runs, oldest first
+	 */
+	public List<String> getPreviousLogs() {
+		return this.previousLogs;
+	}
+
+	/**
+	 * Remove from a key file results of units not in journal (written before a crash, they will be recomputed)
+	 * @param keyFile <run><Globals.resultsExt>
+	 * @return removed lines
+	 * @throws IOException
+	 */
+	public int trim(File keyFile) throws IOException {
+		String run = keyFile.getName().substring(0, keyFile.getName().length() - Globals.resultsExt.length());
+		File tmp = new File(keyFile.getPath() + ".tmp");
+		BufferedReader reader = new BufferedReader(new FileReader(keyFile));
+		FileOutputStream tmpOut = new FileOutputStream(tmp);
+		BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(tmpOut, StandardCharsets.UTF_8));
+		int removed = 0;
+		String line;
+		while ((line = reader.readLine()) != null) {
+			String termId = line.split(" ")[0];
+			// Term ids are <sentence id>.t<n>
+			if (termId.lastIndexOf('.') > 0 && this.isDone(termId.substring(0, termId.lastIndexOf('.')), run)) {
+				writer.write(line);
+				writer.write('\n');
+			} else {
+				removed++;
+			}
+		}
+		reader.close();
+		writer.flush();
+		tmpOut.getFD().sync();
+		writer.close();
+		// Atomic: killed at any time, key file has all its journaled units
+		Files.move(tmp.toPath(), keyFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		return removed;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (this.out != null) {
+			this.out.close();
+		}
+	}
+}
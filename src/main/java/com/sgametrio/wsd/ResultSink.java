@@ -0,0 +1,12 @@
+package com.sgametrio.wsd;
+
+import java.io.Closeable;
+
+/**
+ * Receives every disambiguation result, e.g. to write key files.
+ * Called concurrently by worker threads
+ */
+public interface ResultSink extends Closeable {
+
+	void accept(DisambiguationResult result);
+}
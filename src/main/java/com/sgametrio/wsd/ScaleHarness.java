@@ -0,0 +1,185 @@
+package com.sgametrio.wsd;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamException;
+
+import evaluation.InputSentence;
+import evaluation.Scorer;
+import evaluation.StreamingInputExtractor;
+
+/**
+ * Scale tests without WordNet and GLKH: generates a SyntheticWordnet lexicon, then for every
+ * corpus size x sentence length x depth (Globals.scale*) generates a corpus and disambiguates it
+ * on this thread with StubGtspSolver. Time and memory of every point are appended to
+ * Globals.scalePath/scale.csv, to plot curves and find where they bend.
+ *
+ * args: [lemmas] [polysemy] [relations] [degreeExponent] (Globals.synthetic* by default)
+ */
+public class ScaleHarness {
+	// Sentences of every synthetic document
+	private static final int sentencesPerText = 20;
+	private static final String header = "lemmas,polysemy,relations,exponent,sentences,length,depth,"
+			+ "seconds,msPerSentence,peakHeapMB,allocatedMB,gcCount,gcMs,f1,status";
+
+	public static void main(String[] args) throws IOException, XMLStreamException {
+		int lemmas = args.length > 0 ? Integer.parseInt(args[0]) : Globals.syntheticLemmas;
+		double polysemy = args.length > 1 ? Double.parseDouble(args[1]) : Globals.syntheticPolysemy;
+		double relations = args.length > 2 ? Double.parseDouble(args[2]) : Globals.syntheticRelations;
+		double exponent = args.length > 3 ? Double.parseDouble(args[3]) : Globals.syntheticDegreeExponent;
+		Globals.stubSolver = true;
+		Globals.developmentLogs = false;
+		Globals.statisticsLogs = false;
+
+		File dir = new File(Globals.scalePath);
+		File dict = new File(dir, "dict_" + lemmas + "_" + polysemy + "_" + relations + "_" + exponent);
+		System.out.println("Generating lexicon in " + dict);
+		SyntheticWordnet lexicon = new SyntheticWordnet(lemmas, polysemy, relations, exponent, Globals.syntheticSeed);
+		lexicon.write(dict);
+		Disambiguator disambiguator = new Disambiguator(new WordnetAdapter(dict.getPath()));
+
+		File csv = new File(dir, "scale.csv");
+		boolean newFile = !csv.exists();
+		PrintWriter out = new PrintWriter(new FileWriter(csv, true));
+		if (newFile) {
+			out.println(header);
+		}
+		String lexiconColumns = lemmas + "," + polysemy + "," + relations + "," + exponent;
+		for (int sentences : Globals.scaleCorpusSizes) {
+			for (int length : Globals.scaleSentenceLengths) {
+				File data = new File(dir, "corpus_" + sentences + "_" + length + Globals.dataFileSuffix);
+				File gold = new File(dir, "corpus_" + sentences + "_" + length + Globals.goldFileSuffix);
+				lexicon.writeCorpus(data, gold, sentences, length, sentencesPerText, Globals.syntheticSeed + sentences * 1000 + length);
+				List<InputSentence> corpus = read(data);
+				boolean cliff = false;
+				for (int depth : Globals.scaleDepths) {
+					String point = lexiconColumns + "," + sentences + "," + length + "," + depth;
+					if (cliff) {
+						out.println(point + ",,,,,,,,skipped");
+						continue;
+					}
+					String result = run(disambiguator, corpus, depth, gold, new File(dir, "system.key"));
+					cliff = result.endsWith("time limit");
+					out.println(point + "," + result);
+					out.flush();
+					System.out.println("[SCALE] sentences " + sentences + " length " + length + " depth " + depth + ": " + result);
+				}
+			}
+		}
+		out.close();
+		disambiguator.close();
+		System.out.println(Metrics.summary());
+	}
+
+	/**
+	 * Disambiguate corpus (stops after Globals.scaleTimeLimit seconds)
+	 * @return csv columns: seconds, ms per sentence, peak heap, allocated bytes (all threads) and GC of this point, F1, status
+	 */
+	private static String run(Disambiguator disambiguator, List<InputSentence> corpus, int depth, File gold, File system) throws IOException {
+		System.gc();
+		List<MemoryPoolMXBean> heap = new ArrayList<MemoryPoolMXBean>();
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				pool.resetPeakUsage();
+				heap.add(pool);
+			}
+		}
+		long gcCount = gcCount();
+		long gcTime = gcTime();
+		Map<Long, Long> allocated = allocatedBytes();
+		long start = System.nanoTime();
+		int done = 0;
+		String status = "ok";
+		PrintWriter keys = new PrintWriter(new FileWriter(system));
+		for (InputSentence sentence : corpus) {
+			DisambiguationResult result = disambiguator.disambiguate(sentence, depth, Globals.computeCentrality, Globals.runSolverMethod);
+			for (JNode v : result.getSenses().values()) {
+				keys.println(v.getTermId() + " " + v.getSenseKey());
+			}
+			done++;
+			if (System.nanoTime() - start > Globals.scaleTimeLimit * 1000000000L) {
+				status = "time limit";
+				break;
+			}
+		}
+		keys.close();
+		double seconds = (System.nanoTime() - start) / 1e9;
+		long peak = 0;
+		for (MemoryPoolMXBean pool : heap) {
+			peak += pool.getPeakUsage().getUsed();
+		}
+		double f1 = Scorer.score(gold, system)[2];
+		return String.format("%.3f,%.2f,%.1f,%.1f,%d,%d,%.3f,%s", seconds, 1000 * seconds / Math.max(1, done), peak / 1048576.0,
+				allocatedSince(allocated) / 1048576.0, gcCount() - gcCount, gcTime() - gcTime, f1, status);
+	}
+
+	private static List<InputSentence> read(File data) throws IOException, XMLStreamException {
+		List<InputSentence> corpus = new ArrayList<InputSentence>();
+		StreamingInputExtractor sentences = new StreamingInputExtractor(data);
+		while (sentences.hasNext()) {
+			corpus.add(sentences.next());
+		}
+		sentences.close();
+		return corpus;
+	}
+
+	private static long gcCount() {
+		long count = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			count += Math.max(0, gc.getCollectionCount());
+		}
+		return count;
+	}
+
+	private static long gcTime() {
+		long time = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			time += Math.max(0, gc.getCollectionTime());
+		}
+		return time;
+	}
+
+	/**
+	 * @return thread id -> bytes allocated by thread, of every live thread (pool threads included),
+	 * empty if the JVM doesn't measure them
+	 */
+	private static Map<Long, Long> allocatedBytes() {
+		Map<Long, Long> allocated = new HashMap<Long, Long>();
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			long[] ids = threads.getAllThreadIds();
+			long[] bytes = ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(ids);
+			for (int i = 0; i < ids.length; i++) {
+				if (bytes[i] >= 0) {
+					allocated.put(ids[i], bytes[i]);
+				}
+			}
+		}
+		return allocated;
+	}
+
+	/**
+	 * @param start allocatedBytes at start
+	 * @return bytes allocated since start by all threads still alive (threads ended meanwhile are not counted)
+	 */
+	private static long allocatedSince(Map<Long, Long> start) {
+		long allocated = 0;
+		for (Map.Entry<Long, Long> thread : allocatedBytes().entrySet()) {
+			Long before = start.get(thread.getKey());
+			allocated += thread.getValue() - (before == null ? 0 : before);
+		}
+		return allocated;
+	}
+}
@@ -1,24 +1,57 @@
 package com.sgametrio.wsd;
 
-import java.util.concurrent.CountDownLatch;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Semaphore;
 
 import evaluation.InputSentence;
 
 public class SentenceRunner implements Runnable {
 	private JExecutor jex;
-	private InputSentence input;
-	private CountDownLatch cdl;
+	private List<InputSentence> document;
+	private boolean documentScope;
+	private Semaphore queue;
 
-	public SentenceRunner(JExecutor ex, InputSentence sentence, CountDownLatch cdl) {
+	/**
+	 * @param ex
+	 * @param sentence
+	 * @param queue permit acquired by the reader before submitting this sentence, released when done
+	 */
+	public SentenceRunner(JExecutor ex, InputSentence sentence, Semaphore queue) {
 		this.jex = ex;
-		this.input = sentence;
-		this.cdl = cdl;
+		this.document = Collections.singletonList(sentence);
+		this.documentScope = false;
+		this.queue = queue;
+	}
+
+	/**
+	 * @param ex
+	 * @param document sentences of a document, disambiguated in order sharing a DocumentContext
+	 * @param queue permit acquired by the reader before submitting this document, released when done
+	 */
+	public SentenceRunner(JExecutor ex, List<InputSentence> document, Semaphore queue) {
+		this.jex = ex;
+		this.document = document;
+		this.documentScope = true;
+		this.queue = queue;
 	}
 
 	@Override
 	public void run() {
-		jex.performDisambiguation(input);
-		cdl.countDown();
+		DocumentContext context = null;
+		if (documentScope) {
+			context = new DocumentContext(DocumentContext.documentId(document.get(0).sentenceId));
+		}
+		try {
+			for (InputSentence input : document) {
+				jex.performDisambiguation(input, context);
+			}
+		} finally {
+			if (context != null) {
+				context.release();
+			}
+			queue.release();
+		}
 	}
 
 }
@@ -0,0 +1,209 @@
+package com.sgametrio.wsd;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+import evaluation.InputSentence;
+
+/**
+ * Orders sentences by estimated cost, longest first.
+ * Cost of a sentence is its time in the previous run (cost profile) if known, otherwise
+ * the square of its candidate senses scaled to nanoseconds with the profiled sentences.
+ */
+public class SentenceScheduler {
+	private final Map<String, Long> profile = new HashMap<String, Long>();
+	private final Map<String, Long> estimates = new HashMap<String, Long>();
+
+	/**
+	 * @param profileFile cost profile saved by a previous run, may not exist
+	 */
+	public SentenceScheduler(String profileFile) {
+		File file = new File(profileFile);
+		if (!file.exists())
+			return;
+		try {
+			BufferedReader reader = new BufferedReader(new FileReader(file));
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] fields = line.split(" ");
+				if (fields.length == 2) {
+					profile.put(fields[0], Long.parseLong(fields[1]));
+				}
+			}
+			reader.close();
+		} catch (IOException | NumberFormatException e) {
+			System.err.println("Cost profile " + profileFile + " ignored: " + e);
+			profile.clear();
+		}
+	}
+
+	/**
+	 * Estimate every sentence cost and return them ordered longest first (input order on ties)
+	 * @param sentences in input order
+	 * @param ex used to count candidate senses
+	 * @return new ordered list
+	 */
+	public List<InputSentence> largestFirst(List<InputSentence> sentences, JExecutor ex) {
+		Map<String, Long> senses = new HashMap<String, Long>();
+		long profiledUnits = 0;
+		long profiledNanos = 0;
+		for (InputSentence sentence : sentences) {
+			long n = ex.countSenses(sentence);
+			senses.put(sentence.sentenceId, n * n);
+			if (profile.containsKey(sentence.sentenceId)) {
+				profiledUnits += n * n;
+				profiledNanos += profile.get(sentence.sentenceId);
+			}
+		}
+		// nanoseconds per squared sense, 1 if there is no profile
+		double scale = profiledUnits > 0 ? (double) profiledNanos / profiledUnits : 1.0;
+		for (InputSentence sentence : sentences) {
+			Long cost = profile.get(sentence.sentenceId);
+			if (cost == null) {
+				cost = Math.round(senses.get(sentence.sentenceId) * scale);
+			}
+			estimates.put(sentence.sentenceId, cost);
+		}
+		List<InputSentence> ordered = new ArrayList<InputSentence>(sentences);
+		// Stable sort keeps input order between same cost sentences
+		Collections.sort(ordered, new Comparator<InputSentence>() {
+			@Override
+			public int compare(InputSentence s1, InputSentence s2) {
+				return Long.compare(estimates.get(s2.sentenceId), estimates.get(s1.sentenceId));
+			}
+		});
+		return ordered;
+	}
+
+	/**
+	 * Group sentences by document (Globals.documentScope), documents ordered by total estimated cost,
+	 * longest first. Call after largestFirst
+	 * @param sentences in input order
+	 * @return new list, sentences of a document are consecutive and in input order
+	 */
+	public List<InputSentence> largestDocumentsFirst(List<InputSentence> sentences) {
+		Map<String, List<InputSentence>> documents = new LinkedHashMap<String, List<InputSentence>>();
+		final Map<String, Long> costs = new HashMap<String, Long>();
+		for (InputSentence sentence : sentences) {
+			String document = DocumentContext.documentId(sentence.sentenceId);
+			if (!documents.containsKey(document)) {
+				documents.put(document, new ArrayList<InputSentence>());
+				costs.put(document, 0L);
+			}
+			documents.get(document).add(sentence);
+			costs.put(document, costs.get(document) + estimates.get(sentence.sentenceId));
+		}
+		List<String> ordered = new ArrayList<String>(documents.keySet());
+		// Stable sort keeps input order between same cost documents
+		Collections.sort(ordered, new Comparator<String>() {
+			@Override
+			public int compare(String d1, String d2) {
+				return Long.compare(costs.get(d2), costs.get(d1));
+			}
+		});
+		List<InputSentence> grouped = new ArrayList<InputSentence>();
+		for (String document : ordered) {
+			grouped.addAll(documents.get(document));
+		}
+		return grouped;
+	}
+
+	public boolean hasProfile() {
+		return !profile.isEmpty();
+	}
+
+	public Map<String, Long> getEstimates() {
+		return estimates;
+	}
+
+	public Map<String, Long> getProfile() {
+		return profile;
+	}
+
+	/**
+	 * Simulate list scheduling: every sentence goes to the first free worker
+	 * @param order sentences in submission order
+	 * @param costs sentence id -> cost
+	 * @param workers
+	 * @return time when last worker finishes
+	 */
+	public static long makespan(List<InputSentence> order, Map<String, Long> costs, int workers) {
+		PriorityQueue<Long> finish = new PriorityQueue<Long>();
+		for (int i = 0; i < workers; i++) {
+			finish.add(0L);
+		}
+		long makespan = 0;
+		for (InputSentence sentence : order) {
+			Long cost = costs.get(sentence.sentenceId);
+			long end = finish.poll() + (cost == null ? 0 : cost);
+			makespan = Math.max(makespan, end);
+			finish.add(end);
+		}
+		return makespan;
+	}
+
+	/**
+	 * @param fifo sentences in input order
+	 * @param ordered sentences in scheduled order
+	 * @param costs sentence id -> cost
+	 * @param workers
+	 * @param nanos true if costs are nanoseconds, false for estimated units
+	 * @return makespan comparison between input order and scheduled order
+	 */
+	public static String report(List<InputSentence> fifo, List<InputSentence> ordered, Map<String, Long> costs, int workers, boolean nanos) {
+		long fifoMakespan = makespan(fifo, costs, workers);
+		long orderedMakespan = makespan(ordered, costs, workers);
+		String fifoString = nanos ? Duration.ofNanos(fifoMakespan).toString() : fifoMakespan + " units";
+		String orderedString = nanos ? Duration.ofNanos(orderedMakespan).toString() : orderedMakespan + " units";
+		return "fifo " + fifoString + " largest-first " + orderedString
+				+ " (" + String.format("%+.2f", fifoMakespan > 0 ? 100.0 * (orderedMakespan - fifoMakespan) / fifoMakespan : 0.0) + "%)";
+	}
+
+	/**
+	 * Merge measured sentence costs into saved profile: sentences not run (e.g. skipped by a resumed run)
+	 * keep their previous cost
+	 * @param profileFile
+	 * @param costs sentence id -> nanoseconds
+	 */
+	public static void updateProfile(String profileFile, Map<String, Long> costs) {
+		Map<String, Long> profile = new TreeMap<String, Long>(new SentenceScheduler(profileFile).getProfile());
+		profile.putAll(costs);
+		saveProfile(profileFile, profile);
+	}
+
+	/**
+	 * Save measured sentence costs, to be used by next run
+	 * @param profileFile
+	 * @param costs sentence id -> nanoseconds
+	 */
+	public static void saveProfile(String profileFile, Map<String, Long> costs) {
+		File file = new File(profileFile);
+		if (file.getParentFile() != null && !file.getParentFile().isDirectory()) {
+			file.getParentFile().mkdirs();
+		}
+		try {
+			BufferedWriter writer = new BufferedWriter(new FileWriter(file));
+			for (Entry<String, Long> cost : costs.entrySet()) {
+				writer.write(cost.getKey() + " " + cost.getValue() + "\n");
+			}
+			writer.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+}
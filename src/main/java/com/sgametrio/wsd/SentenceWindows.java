@@ -0,0 +1,54 @@
+package com.sgametrio.wsd;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Overlapping windows of the instances of long sentences (Globals.windowThreshold): every window
+ * is expanded and disambiguated on its own, then every instance takes the sense chosen by the window
+ * where it is farthest from the borders (first window on ties), so results don't depend on timing
+ */
+public class SentenceWindows {
+
+	/**
+	 * @param instances number of selected instances of the sentence
+	 * @return [start, end) of every window, a single window if sentence is not longer than Globals.windowThreshold
+	 */
+	public static List<int[]> split(int instances) {
+		List<int[]> windows = new ArrayList<int[]>();
+		int size = Globals.windowSize;
+		if (Globals.windowThreshold <= 0 || instances <= Globals.windowThreshold || instances <= size) {
+			windows.add(new int[] {0, instances});
+			return windows;
+		}
+		int stride = Math.max(1, size - Globals.windowOverlap);
+		// Fewest windows overlapping by at least windowOverlap, evenly spread from first to last instance
+		int count = (instances - size + stride - 1) / stride + 1;
+		for (int w = 0; w < count; w++) {
+			int start = (int) ((long) w * (instances - size) / (count - 1));
+			windows.add(new int[] {start, start + size});
+		}
+		return windows;
+	}
+
+	/**
+	 * @param windows
+	 * @param instances
+	 * @return window whose sense is kept, for every instance
+	 */
+	public static int[] owners(List<int[]> windows, int instances) {
+		int[] owners = new int[instances];
+		for (int i = 0; i < instances; i++) {
+			int margin = -1;
+			for (int w = 0; w < windows.size(); w++) {
+				int start = windows.get(w)[0];
+				int end = windows.get(w)[1];
+				if (i >= start && i < end && Math.min(i - start, end - 1 - i) > margin) {
+					margin = Math.min(i - start, end - 1 - i);
+					owners[i] = w;
+				}
+			}
+		}
+		return owners;
+	}
+}
@@ -0,0 +1,198 @@
+package com.sgametrio.wsd;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.ProcessBuilder.Redirect;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Sharded runs (Globals.shardCount): sentences are split by id hash among worker processes,
+ * every worker writes in its own Globals.shardsPath/shard-<i>/ (Globals.outputPath).
+ * Merge builds the files of a single process run: key files ordered by sentence id, cost profile,
+ * timings, and the evaluation reports computed on merged results and on workers events.
+ * Solver files (GTSPLIB, G-TOURS) are shared, their names are unique per sentence.
+ */
+public class ShardRunner {
+
+	/**
+	 * @param sentenceId
+	 * @return true if sentence is disambiguated by this process (with Globals.documentScope all
+	 * sentences of a document are in the same shard)
+	 */
+	public static boolean inShard(String sentenceId) {
+		String unit = Globals.documentScope ? DocumentContext.documentId(sentenceId) : sentenceId;
+		return Globals.shardCount <= 1 || Math.floorMod(unit.hashCode(), Globals.shardCount) == Globals.shardIndex;
+	}
+
+	/**
+	 * Doesn't initialize Globals: used to set Globals.outputPath before it is read
+	 * @param shard
+	 * @return output directory of shard
+	 */
+	public static String shardPath(int shard) {
+		return Globals.shardsPath + "shard-" + shard + "/";
+	}
+
+	/**
+	 * Start shards worker processes with the same JVM options and class path of this one,
+	 * available processors are divided among them. Output of worker i goes to shard-<i>/output.txt
+	 * @param shards
+	 * @return true if all workers exited normally
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public static boolean runWorkers(int shards) throws IOException, InterruptedException {
+		int processors = Math.max(1, Runtime.getRuntime().availableProcessors() / shards);
+		List<Process> workers = new ArrayList<Process>();
+		for (int shard = 0; shard < shards; shard++) {
+			List<String> command = new ArrayList<String>();
+			command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+			for (String arg : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+				// Debugger port can't be shared, output and processors are set per worker
+				if (!arg.startsWith("-agentlib:jdwp") && !arg.startsWith("-Dwsd.output=") && !arg.startsWith("-XX:ActiveProcessorCount="))
+					command.add(arg);
+			}
+			command.add("-Dwsd.output=" + shardPath(shard));
+			command.add("-XX:ActiveProcessorCount=" + processors);
+			command.add("-cp");
+			command.add(System.getProperty("java.class.path"));
+			command.add(WsdLauncher.class.getName());
+			command.add("--shard");
+			command.add(shard + "/" + shards);
+			if (Globals.resume) {
+				command.add("--resume");
+			}
+			new File(shardPath(shard)).mkdirs();
+			ProcessBuilder builder = new ProcessBuilder(command);
+			builder.redirectErrorStream(true);
+			builder.redirectOutput(Redirect.appendTo(new File(shardPath(shard) + "output.txt")));
+			workers.add(builder.start());
+			System.out.println("[SHARDS] worker " + shard + "/" + shards + " started, " + processors + " processors");
+		}
+		boolean ok = true;
+		for (int shard = 0; shard < shards; shard++) {
+			int exit = workers.get(shard).waitFor();
+			System.out.println("[SHARDS] worker " + shard + "/" + shards + " exited with " + exit);
+			ok &= exit == 0;
+		}
+		return ok;
+	}
+
+	/**
+	 * Merge results of shards into Globals.resultsPath, Globals.costProfileFile and Globals.logsPath,
+	 * events of workers are included for the evaluation
+	 * @param shards
+	 * @throws IOException
+	 */
+	public static void merge(int shards) throws IOException {
+		File results = new File(Globals.resultsPath);
+		results.mkdirs();
+		for (File file : results.listFiles()) {
+			if (file.getName().endsWith(Globals.resultsExt)) {
+				file.delete();
+			}
+		}
+		new File(Globals.logsPath).mkdirs();
+		// Key file name -> lines of all shards
+		Map<String, List<String>> keyFiles = new TreeMap<String, List<String>>();
+		Map<String, Long> costs = new TreeMap<String, Long>();
+		// Sentence id -> timing line of the last session that disambiguated it (a resumed shard redoes unfinished sentences)
+		Map<String, String> timings = new LinkedHashMap<String, String>();
+		int units = 0;
+		for (int shard = 0; shard < shards; shard++) {
+			File[] files = new File(inShard(shard, Globals.resultsPath)).listFiles();
+			if (files == null) {
+				System.out.println("[SHARDS] no results for shard " + shard);
+				continue;
+			}
+			for (File file : files) {
+				if (!file.getName().endsWith(Globals.resultsExt))
+					continue;
+				if (!keyFiles.containsKey(file.getName())) {
+					keyFiles.put(file.getName(), new ArrayList<String>());
+				}
+				readLines(file, keyFiles.get(file.getName()));
+			}
+			costs.putAll(new SentenceScheduler(inShard(shard, Globals.costProfileFile)).getProfile());
+			ProgressJournal journal = ProgressJournal.read(inShard(shard, Globals.journalFile));
+			units += journal.size();
+			for (String logs : journal.getPreviousLogs()) {
+				File shardTimings = new File(logs + "timings.txt");
+				if (shardTimings.exists()) {
+					List<String> lines = new ArrayList<String>();
+					readLines(shardTimings, lines);
+					for (String line : lines) {
+						// "[GRAPH <sentence id>][FINISHED] Time: <time>"
+						String sentence = line.substring(0, Math.max(0, line.indexOf(']')));
+						timings.remove(sentence);
+						timings.put(sentence, line);
+					}
+				}
+			}
+			// Events of every unit only from the session that journaled it
+			EventLogger.includePreviousRuns(journal);
+		}
+		BufferedWriter timingsWriter = new BufferedWriter(new FileWriter(Globals.logsPath + "timings.txt", true));
+		for (String line : timings.values()) {
+			timingsWriter.write(line + "\n");
+		}
+		timingsWriter.close();
+		for (Map.Entry<String, List<String>> keyFile : keyFiles.entrySet()) {
+			List<String> lines = keyFile.getValue();
+			// Stable: instances of a sentence keep their order
+			Collections.sort(lines, new Comparator<String>() {
+				@Override
+				public int compare(String l1, String l2) {
+					return sentenceId(l1).compareTo(sentenceId(l2));
+				}
+			});
+			BufferedWriter writer = new BufferedWriter(new FileWriter(new File(results, keyFile.getKey())));
+			for (String line : lines) {
+				writer.write(line + "\n");
+			}
+			writer.close();
+		}
+		SentenceScheduler.saveProfile(Globals.costProfileFile, costs);
+		System.out.println("[SHARDS] merged " + keyFiles.size() + " key files, " + units + " units of " + shards + " shards");
+	}
+
+	/**
+	 * @param shard
+	 * @param path under Globals.outputPath
+	 * @return same path under shard directory
+	 */
+	private static String inShard(int shard, String path) {
+		return shardPath(shard) + path.substring(Globals.outputPath.length());
+	}
+
+	/**
+	 * @param line "<instance id> <sense key>", instance ids are <sentence id>.t<n>
+	 * @return sentence id
+	 */
+	private static String sentenceId(String line) {
+		String termId = line.split(" ")[0];
+		return termId.lastIndexOf('.') > 0 ? termId.substring(0, termId.lastIndexOf('.')) : termId;
+	}
+
+	private static void readLines(File file, List<String> lines) throws IOException {
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+		String line;
+		while ((line = reader.readLine()) != null) {
+			if (!line.isEmpty()) {
+				lines.add(line);
+			}
+		}
+		reader.close();
+	}
+}
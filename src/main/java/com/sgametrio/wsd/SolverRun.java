@@ -0,0 +1,23 @@
+package com.sgametrio.wsd;
+
+import java.time.Duration;
+
+/**
+ * Outcome of a single solver run on a GTSP instance
+ */
+public class SolverRun {
+	public final String name;
+	public final int member;
+	public final int seed;
+	public int[] tour = null;
+	public long length = Long.MAX_VALUE;
+	// false if stopped by time limit
+	public boolean completed = true;
+	public Duration elapsed = Duration.ZERO;
+
+	public SolverRun(String name, int member, int seed) {
+		this.name = name;
+		this.member = member;
+		this.seed = seed;
+	}
+}
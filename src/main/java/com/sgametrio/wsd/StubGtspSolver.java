@@ -0,0 +1,48 @@
+package com.sgametrio.wsd;
+
+import java.util.Arrays;
+
+/**
+ * In-process stand-in for GLKH (Globals.stubSolver), for machines without solver binaries.
+ * Greedy nearest neighbour: from every vertex of the first cluster, move to the nearest vertex
+ * of a cluster not yet visited; shortest closed tour wins. Deterministic, no files are read.
+ * Tours are not as good as GLKH ones, scale tests use it to measure everything but the solver
+ */
+public class StubGtspSolver {
+
+	/**
+	 * @param instance
+	 * @return tour as 1-based vertex indexes, one vertex per cluster (as read from GLKH tour files)
+	 */
+	public static int[] solve(GtspInstance instance) {
+		int clusters = instance.getClustersCount();
+		int[] clusterOf = instance.getClusterOf();
+		int[] best = null;
+		long bestLength = Long.MAX_VALUE;
+		int[] tour = new int[clusters];
+		boolean[] visited = new boolean[clusters];
+		for (int start = 0; start < instance.size() && clusterOf[start] == 0; start++) {
+			Arrays.fill(visited, false);
+			visited[0] = true;
+			tour[0] = start + 1;
+			int current = start;
+			for (int step = 1; step < clusters; step++) {
+				int next = -1;
+				for (int v = 0; v < instance.size(); v++) {
+					if (!visited[clusterOf[v]] && (next < 0 || instance.distance(current, v) < instance.distance(current, next))) {
+						next = v;
+					}
+				}
+				visited[clusterOf[next]] = true;
+				tour[step] = next + 1;
+				current = next;
+			}
+			long length = instance.tourLength(tour);
+			if (length < bestLength) {
+				bestLength = length;
+				best = tour.clone();
+			}
+		}
+		return best;
+	}
+}
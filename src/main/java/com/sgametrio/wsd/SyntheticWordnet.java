@@ -0,0 +1,336 @@
+package com.sgametrio.wsd;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * WordNet-shaped lexicon generator, for scale tests on machines without WordNet.
+ * Lexicon is written as a WordNet database directory (data.*, index.*, index.sense, *.exc), so it is
+ * loaded by WordnetAdapter(path) and used by the whole pipeline as the real one.
+ * - size: lemmas, split between POS as in WordNet 3.0 (76% nouns, 7% verbs, 14% adjectives, 3% adverbs)
+ * - polysemy: senses per lemma are geometric with given mean (at most 16, WordNet lex ids are a hex digit)
+ * - relations: related synsets per synset follow a power law with given mean and exponent (few hubs, many leaves),
+ *   every relation has its inverse (hypernym/hyponym for nouns and verbs, also see for adjectives and adverbs)
+ * Same seed, same lexicon. writeCorpus generates dataset and gold key files using lexicon lemmas
+ */
+public class SyntheticWordnet {
+	private static final char[] posSymbols = { 'n', 'v', 'a', 'r' };
+	private static final String[] posFiles = { "noun", "verb", "adj", "adv" };
+	private static final String[] datasetPos = { "NOUN", "VERB", "ADJ", "ADV" };
+	private static final double[] posShares = { 0.76, 0.07, 0.14, 0.03 };
+	// First lex file of every POS: noun.Tops, verb.body, adj.all, adv.all
+	private static final int[] lexFiles = { 3, 29, 0, 2 };
+	private static final String[] pointers = { "@", "@", "^", "^" };
+	private static final String[] inversePointers = { "~", "~", "^", "^" };
+	// Words per synset, WordNet 3.0 has about 1.75
+	private static final double synonymy = 1.75;
+	private static final int maxSenses = 16;
+	private static final int maxPointers = 999;
+
+	private final int lemmas;
+	private final double polysemy;
+	private final double relations;
+	private final double degreeExponent;
+	private final long seed;
+	// For every POS: synsets, and senses (synset indexes) of every lemma
+	private final List<List<Synset>> synsets = new ArrayList<List<Synset>>();
+	private final List<List<List<Integer>>> senses = new ArrayList<List<List<Integer>>>();
+
+	/**
+	 * Lexicon configured by Globals synthetic parameters
+	 */
+	public SyntheticWordnet() {
+		this(Globals.syntheticLemmas, Globals.syntheticPolysemy, Globals.syntheticRelations, Globals.syntheticDegreeExponent, Globals.syntheticSeed);
+	}
+
+	/**
+	 * @param lemmas total lemmas
+	 * @param polysemy mean senses per lemma, at least 1
+	 * @param relations mean related synsets per synset
+	 * @param degreeExponent exponent of related synsets power law, greater than 2
+	 * @param seed
+	 */
+	public SyntheticWordnet(int lemmas, double polysemy, double relations, double degreeExponent, long seed) {
+		if (lemmas < posShares.length || polysemy < 1 || relations < 0 || degreeExponent <= 2) {
+			throw new IllegalArgumentException("Bad lexicon: lemmas " + lemmas + " polysemy " + polysemy
+					+ " relations " + relations + " exponent " + degreeExponent);
+		}
+		this.lemmas = lemmas;
+		this.polysemy = polysemy;
+		this.relations = relations;
+		this.degreeExponent = degreeExponent;
+		this.seed = seed;
+		Random random = new Random(seed);
+		for (int p = 0; p < posSymbols.length; p++) {
+			int count = Math.max(1, (int) Math.round(lemmas * posShares[p]));
+			this.generate(p, count, random);
+		}
+	}
+
+	private void generate(int p, int lemmaCount, Random random) {
+		// Senses of every lemma, one slot for every sense
+		List<Integer> slots = new ArrayList<Integer>();
+		for (int l = 0; l < lemmaCount; l++) {
+			int k = 1;
+			while (k < maxSenses && random.nextDouble() < 1 - 1 / this.polysemy) {
+				k++;
+			}
+			for (int i = 0; i < k; i++) {
+				slots.add(l);
+			}
+		}
+		Collections.shuffle(slots, random);
+		int synsetCount = Math.max(Math.min(maxSenses, slots.size()), (int) Math.round(slots.size() / synonymy));
+		List<Synset> posSynsets = new ArrayList<Synset>();
+		for (int s = 0; s < synsetCount; s++) {
+			posSynsets.add(new Synset());
+		}
+		List<List<Integer>> lemmaSenses = new ArrayList<List<Integer>>();
+		for (int l = 0; l < lemmaCount; l++) {
+			lemmaSenses.add(new ArrayList<Integer>());
+		}
+		for (int i = 0; i < slots.size(); i++) {
+			int lemma = slots.get(i);
+			// Every synset gets at least a word, then a random synset not having lemma yet
+			int s = i < synsetCount ? i : random.nextInt(synsetCount);
+			for (int tries = 0; posSynsets.get(s).lemmas.contains(lemma) && tries < synsetCount; tries++) {
+				s = (s + 1) % synsetCount;
+			}
+			if (posSynsets.get(s).lemmas.contains(lemma))
+				continue;
+			posSynsets.get(s).lemmas.add(lemma);
+			posSynsets.get(s).lexIds.add(lemmaSenses.get(lemma).size());
+			lemmaSenses.get(lemma).add(s);
+		}
+		this.relate(posSynsets, random);
+		this.synsets.add(posSynsets);
+		this.senses.add(lemmaSenses);
+	}
+
+	/**
+	 * Configuration model: every synset gets a power-law number of relation stubs, stubs are paired at random
+	 * (self relations and duplicates are dropped)
+	 */
+	private void relate(List<Synset> posSynsets, Random random) {
+		int n = posSynsets.size();
+		double[] weights = new double[n];
+		double total = 0;
+		for (int s = 0; s < n; s++) {
+			// Pareto distributed, minimum 1
+			weights[s] = Math.pow(1 - random.nextDouble(), -1 / (this.degreeExponent - 1));
+			total += weights[s];
+		}
+		double scale = this.relations * n / total;
+		List<Integer> stubs = new ArrayList<Integer>();
+		for (int s = 0; s < n; s++) {
+			double degree = weights[s] * scale;
+			int d = (int) degree + (random.nextDouble() < degree - (int) degree ? 1 : 0);
+			for (int i = 0; i < Math.min(d, maxPointers); i++) {
+				stubs.add(s);
+			}
+		}
+		Collections.shuffle(stubs, random);
+		for (int i = 0; i + 1 < stubs.size(); i += 2) {
+			Synset from = posSynsets.get(stubs.get(i));
+			int to = stubs.get(i + 1);
+			if (stubs.get(i) == to || from.targetSet.contains(to) || from.targets.size() >= maxPointers
+					|| posSynsets.get(to).targets.size() >= maxPointers)
+				continue;
+			from.add(to, false);
+			posSynsets.get(to).add(stubs.get(i), true);
+		}
+	}
+
+	/**
+	 * Write lexicon in WordNet database format
+	 * @param dict directory, created if missing
+	 * @throws IOException
+	 */
+	public void write(File dict) throws IOException {
+		dict.mkdirs();
+		Set<String> senseIndex = new TreeSet<String>();
+		for (int p = 0; p < posSymbols.length; p++) {
+			List<Synset> posSynsets = this.synsets.get(p);
+			String header = "  1 Synthetic WordNet-like lexicon: lemmas " + this.lemmas + " polysemy " + this.polysemy
+					+ " relations " + this.relations + " exponent " + this.degreeExponent + " seed " + this.seed + "  \n";
+			// Offsets have a fixed width, so line lengths don't depend on them
+			long offset = header.length();
+			for (Synset synset : posSynsets) {
+				synset.offset = offset;
+				offset += this.dataLine(p, synset).length();
+			}
+			Writer data = writer(new File(dict, "data." + posFiles[p]));
+			data.write(header);
+			for (Synset synset : posSynsets) {
+				data.write(this.dataLine(p, synset));
+			}
+			data.close();
+
+			List<String> index = new ArrayList<String>();
+			List<List<Integer>> lemmaSenses = this.senses.get(p);
+			for (int l = 0; l < lemmaSenses.size(); l++) {
+				List<Integer> synsetsOfLemma = lemmaSenses.get(l);
+				if (synsetsOfLemma.isEmpty())
+					continue;
+				Set<String> symbols = new TreeSet<String>();
+				StringBuilder offsets = new StringBuilder();
+				for (int i = 0; i < synsetsOfLemma.size(); i++) {
+					Synset synset = posSynsets.get(synsetsOfLemma.get(i));
+					for (boolean inverse : synset.inverse) {
+						symbols.add(inverse ? inversePointers[p] : pointers[p]);
+					}
+					offsets.append(String.format("%08d ", synset.offset));
+					senseIndex.add(senseKey(p, lemma(l), i) + " " + String.format("%08d", synset.offset) + " " + (i + 1) + " 0\n");
+				}
+				StringBuilder line = new StringBuilder(lemma(l)).append(' ').append(posSymbols[p])
+						.append(' ').append(synsetsOfLemma.size()).append(' ').append(symbols.size()).append(' ');
+				for (String symbol : symbols) {
+					line.append(symbol).append(' ');
+				}
+				line.append(synsetsOfLemma.size()).append(" 0 ").append(offsets).append(" \n");
+				index.add(line.toString());
+			}
+			Collections.sort(index);
+			Writer indexWriter = writer(new File(dict, "index." + posFiles[p]));
+			indexWriter.write(header);
+			for (String line : index) {
+				indexWriter.write(line);
+			}
+			indexWriter.close();
+			// No inflected forms
+			writer(new File(dict, posFiles[p] + ".exc")).close();
+		}
+		Writer sense = writer(new File(dict, "index.sense"));
+		for (String line : senseIndex) {
+			sense.write(line);
+		}
+		sense.close();
+	}
+
+	private String dataLine(int p, Synset synset) {
+		StringBuilder line = new StringBuilder();
+		line.append(String.format("%08d %02d %c %02x ", synset.offset, lexFiles[p], posSymbols[p], synset.lemmas.size()));
+		for (int w = 0; w < synset.lemmas.size(); w++) {
+			line.append(lemma(synset.lemmas.get(w))).append(' ').append(Integer.toHexString(synset.lexIds.get(w))).append(' ');
+		}
+		line.append(String.format("%03d ", synset.targets.size()));
+		List<Synset> posSynsets = this.synsets.get(p);
+		for (int r = 0; r < synset.targets.size(); r++) {
+			line.append(synset.inverse.get(r) ? inversePointers[p] : pointers[p])
+				.append(String.format(" %08d %c 0000 ", posSynsets.get(synset.targets.get(r)).offset, posSymbols[p]));
+		}
+		if (posSymbols[p] == 'v') {
+			// Frame 2 (Somebody ----s) for all words
+			line.append("01 + 02 00 ");
+		}
+		line.append("| synthetic synset  \n");
+		return line.toString();
+	}
+
+	/**
+	 * Write an evaluation dataset (one text every sentencesPerText sentences, only instances) and its gold keys.
+	 * Lemmas are drawn with a skewed distribution (low lemma numbers are frequent), gold sense is random
+	 * @param dataFile
+	 * @param goldFile
+	 * @param sentences
+	 * @param length instances per sentence
+	 * @param sentencesPerText
+	 * @param corpusSeed
+	 * @throws IOException
+	 */
+	public void writeCorpus(File dataFile, File goldFile, int sentences, int length, int sentencesPerText, long corpusSeed) throws IOException {
+		Random random = new Random(corpusSeed);
+		Writer data = writer(dataFile);
+		Writer gold = writer(goldFile);
+		data.write("<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n<corpus lang=\"en\" source=\"synthetic\">\n");
+		for (int s = 0; s < sentences; s++) {
+			String textId = String.format("d%03d", s / sentencesPerText);
+			if (s % sentencesPerText == 0) {
+				if (s > 0)
+					data.write("</text>\n");
+				data.write("<text id=\"" + textId + "\">\n");
+			}
+			String sentenceId = textId + String.format(".s%03d", s % sentencesPerText);
+			data.write("<sentence id=\"" + sentenceId + "\">\n");
+			for (int t = 0; t < length; t++) {
+				int p = this.randomPos(random);
+				List<List<Integer>> lemmaSenses = this.senses.get(p);
+				int l = (int) (lemmaSenses.size() * Math.pow(random.nextDouble(), 3));
+				while (lemmaSenses.get(l).isEmpty()) {
+					l = (l + 1) % lemmaSenses.size();
+				}
+				String instanceId = sentenceId + String.format(".t%03d", t);
+				data.write("<instance id=\"" + instanceId + "\" lemma=\"" + lemma(l) + "\" pos=\"" + datasetPos[p] + "\">"
+						+ lemma(l) + "</instance>\n");
+				gold.write(instanceId + " " + senseKey(p, lemma(l), random.nextInt(lemmaSenses.get(l).size())) + "\n");
+			}
+			data.write("</sentence>\n");
+		}
+		if (sentences > 0)
+			data.write("</text>\n");
+		data.write("</corpus>\n");
+		data.close();
+		gold.close();
+	}
+
+	private int randomPos(Random random) {
+		double r = random.nextDouble();
+		for (int p = 0; p < posShares.length - 1; p++) {
+			if (r < posShares[p])
+				return p;
+			r -= posShares[p];
+		}
+		return posShares.length - 1;
+	}
+
+	/**
+	 * @return number of synsets of every POS
+	 */
+	public int[] getSynsetCounts() {
+		int[] counts = new int[posSymbols.length];
+		for (int p = 0; p < counts.length; p++) {
+			counts[p] = this.synsets.get(p).size();
+		}
+		return counts;
+	}
+
+	private static String lemma(int l) {
+		return "w" + l;
+	}
+
+	private static String senseKey(int p, String lemma, int lexId) {
+		return String.format("%s%%%d:%02d:%02d::", lemma, p + 1, lexFiles[p], lexId);
+	}
+
+	private static Writer writer(File file) throws IOException {
+		return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.US_ASCII));
+	}
+
+	private static class Synset {
+		final List<Integer> lemmas = new ArrayList<Integer>();
+		final List<Integer> lexIds = new ArrayList<Integer>();
+		final List<Integer> targets = new ArrayList<Integer>();
+		// true for inverse pointers (hyponym)
+		final List<Boolean> inverse = new ArrayList<Boolean>();
+		final Set<Integer> targetSet = new HashSet<Integer>();
+		long offset;
+
+		void add(int target, boolean isInverse) {
+			this.targets.add(target);
+			this.inverse.add(isInverse);
+			this.targetSet.add(target);
+		}
+	}
+}
@@ -0,0 +1,40 @@
+package com.sgametrio.wsd;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors shared by launcher and executor
+ */
+public class ThreadPools {
+
+	/**
+	 * @return virtual thread per task executor, null if not supported by the JVM (before JDK 21)
+	 */
+	public static ExecutorService newVirtualThreadExecutor() {
+		try {
+			// Looked up by reflection: sources still target Java 8
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @param name thread name prefix
+	 * @return factory of daemon threads, they don't keep the JVM alive
+	 */
+	public static ThreadFactory daemonThreads(final String name) {
+		final AtomicInteger count = new AtomicInteger();
+		return new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		};
+	}
+}
@@ -0,0 +1,69 @@
+package com.sgametrio.wsd;
+
+/**
+ * Flight recorder tracing of disambiguation stages (PipelineEvents), e.g. run with
+ * -XX:StartFlightRecording=filename=wsd.jfr and inspect com.sgametrio.wsd.* events with JMC or "jfr print".
+ * Events cost almost nothing when no recording is running; they are disabled if Globals.traceEvents
+ * is false, if the project was built on Java 8 (event classes are compiled only on JDK 11+, pom profile
+ * jfr-events) or if the JVM can't load them (Java 8)
+ */
+public class Tracing {
+	public static final int expansion = 0;
+	public static final int centrality = 1;
+	public static final int instanceWrite = 2;
+	public static final int solver = 3;
+	public static final int outputGeneration = 4;
+	// Solver exit status when it has no exit value
+	public static final int solverKilled = -1;
+	public static final int solverInterrupted = -2;
+
+	/**
+	 * Implemented by PipelineEvents, the only class using jdk.jfr
+	 */
+	interface Recorder {
+		Object begin(int stage);
+
+		void end(Object event, String sentenceId, int depth, String centrality, int vertices, long edges, int exitStatus);
+	}
+
+	private static final Recorder recorder = loadRecorder();
+
+	/**
+	 * @return flight recorder events, null if they are not built or the JVM has no jdk.jfr
+	 */
+	private static Recorder loadRecorder() {
+		try {
+			return (Recorder) Class.forName("com.sgametrio.wsd.PipelineEvents").getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			// Not built, class version newer than JVM, or no jdk.jfr module
+			return null;
+		}
+	}
+
+	/**
+	 * @param stage
+	 * @return started event, null if tracing is disabled
+	 */
+	public static Object begin(int stage) {
+		if (recorder == null || !Globals.traceEvents)
+			return null;
+		return recorder.begin(stage);
+	}
+
+	/**
+	 * @param event returned by begin
+	 * @param graph sentence graph, gives sentence id, depth and centrality
+	 * @param vertices
+	 * @param edges
+	 * @param exitStatus solver exit status, 0 for other stages
+	 */
+	public static void end(Object event, JGraph graph, int vertices, long edges, int exitStatus) {
+		end(event, graph.getSentenceId(), graph.getDepth(), graph.getCentrality(), vertices, edges, exitStatus);
+	}
+
+	public static void end(Object event, String sentenceId, int depth, String centrality, int vertices, long edges, int exitStatus) {
+		if (event == null)
+			return;
+		recorder.end(event, sentenceId, depth, centrality, vertices, edges, exitStatus);
+	}
+}
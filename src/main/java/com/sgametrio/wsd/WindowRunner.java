@@ -0,0 +1,194 @@
+package com.sgametrio.wsd;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import evaluation.InputInstance;
+import evaluation.InputSentence;
+
+/**
+ * Disambiguates long sentences by windows (SentenceWindows): windows are expanded and disambiguated
+ * as separate tasks of the executor, results of a configuration are reconciled when all its windows are done
+ */
+public class WindowRunner {
+	private final JExecutor executor;
+
+	/**
+	 * Senses chosen in one window of a long sentence with one configuration
+	 */
+	private static class WindowResult {
+		Map<Integer, JNode> mapC;
+		Map<Integer, JNode> mapD;
+		Duration expansion;
+		Duration centrality;
+		Duration tsp = Duration.ZERO;
+		int solverTimeouts = 0;
+	}
+
+	/**
+	 * @param executor runs window tasks and publishes results
+	 */
+	WindowRunner(JExecutor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Disambiguate windows of a long sentence at depth with every centrality
+	 * @param input
+	 * @param senses disambiguation nodes of the whole sentence
+	 * @param windows [start, end) of every window on input instances
+	 * @param depth
+	 * @param document may be null
+	 * @return one task per centrality
+	 */
+	List<CompletableFuture<Void>> run(final InputSentence input, ArrayList<JNode> senses, final List<int[]> windows,
+			final int depth, final DocumentContext document) {
+		Metrics.counter("windows").add(windows.size());
+		List<CompletableFuture<ExpandedGraph>> expansions = new ArrayList<CompletableFuture<ExpandedGraph>>();
+		for (int w = 0; w < windows.size(); w++) {
+			final InputSentence window = new InputSentence();
+			window.sentenceId = input.sentenceId + "_w" + w;
+			window.sentence = input.sentence;
+			window.instances = new ArrayList<InputInstance>(input.instances.subList(windows.get(w)[0], windows.get(w)[1]));
+			final ArrayList<JNode> windowSenses = new ArrayList<JNode>();
+			for (JNode sense : senses) {
+				for (InputInstance instance : window.instances) {
+					if (sense.getSentenceIndex() == instance.index) {
+						windowSenses.add(sense);
+						break;
+					}
+				}
+			}
+			expansions.add(CompletableFuture.supplyAsync(new Supplier<ExpandedGraph>() {
+				@Override
+				public ExpandedGraph get() {
+					return executor.expandGraph(window, windowSenses, depth, document);
+				}
+			}, this.executor.getConfigurationExecutor()));
+		}
+		List<CompletableFuture<Void>> configurations = new ArrayList<CompletableFuture<Void>>();
+		for (final String currentCentrality : Globals.centralities) {
+			final List<CompletableFuture<WindowResult>> results = new ArrayList<CompletableFuture<WindowResult>>();
+			for (CompletableFuture<ExpandedGraph> expansion : expansions) {
+				results.add(expansion.thenApplyAsync(new Function<ExpandedGraph, WindowResult>() {
+					@Override
+					public WindowResult apply(ExpandedGraph expanded) {
+						return runWindow(input, expanded, currentCentrality);
+					}
+				}, this.executor.getConfigurationExecutor()));
+			}
+			configurations.add(CompletableFuture.allOf(results.toArray(new CompletableFuture[results.size()])).thenRunAsync(new Runnable() {
+				@Override
+				public void run() {
+					List<WindowResult> done = new ArrayList<WindowResult>();
+					for (CompletableFuture<WindowResult> result : results) {
+						done.add(result.join());
+					}
+					reconcile(input, windows, done, depth, currentCentrality);
+				}
+			}, this.executor.getConfigurationExecutor()));
+		}
+		return configurations;
+	}
+
+	/**
+	 * Disambiguate a window by centrality and by TSP. Window graphs are named <sentence id>_w<n>,
+	 * so their events are not read as events of the sentence
+	 * @param input whole sentence
+	 * @param expanded window graph
+	 * @param currentCentrality
+	 * @return senses chosen in the window
+	 */
+	private WindowResult runWindow(InputSentence input, ExpandedGraph expanded, String currentCentrality) {
+		String evalCFilename = DisambiguationResult.run(currentCentrality, expanded.depth, Globals.byCentralityMethod);
+		String evalDFilename = DisambiguationResult.run(currentCentrality, expanded.depth, Globals.runSolverMethod);
+		WindowResult result = new WindowResult();
+		result.expansion = expanded.time;
+		Instant beforeC = Instant.now();
+		Map<JNode, Double> scores = this.executor.scoreSenses(expanded, currentCentrality);
+		result.centrality = Duration.between(beforeC, Instant.now());
+		String windowId = expanded.graph.getSentenceId();
+		JGraph dGraph = this.executor.newGraph(input.sentence, windowId);
+		JGraph cGraph = this.executor.newGraph(input.sentence, windowId);
+		this.executor.addScoredSenses(expanded, scores, cGraph, dGraph);
+		cGraph.setConfiguration(evalCFilename, expanded.depth, currentCentrality);
+		dGraph.setConfiguration(evalDFilename, expanded.depth, currentCentrality);
+		result.mapC = this.executor.disambiguateByCentrality(cGraph, dGraph);
+		if (!this.executor.isDone(input.sentenceId, evalDFilename)) {
+			String dFilename = evalDFilename + "_" + windowId;
+			Instant beforeD = Instant.now();
+			result.mapD = this.executor.disambiguateBySolver(dGraph, dFilename, result.mapC);
+			result.tsp = Duration.between(beforeD, Instant.now());
+			result.solverTimeouts = dGraph.getSolverTimeouts();
+		}
+		return result;
+	}
+
+	/**
+	 * Keep for every instance the sense chosen by its owner window (SentenceWindows.owners), then log and
+	 * publish results of the whole sentence as single window sentences do. Times are summed over windows
+	 * @param input
+	 * @param windows
+	 * @param results of every window, same order of windows
+	 * @param depth
+	 * @param currentCentrality
+	 */
+	private void reconcile(InputSentence input, List<int[]> windows, List<WindowResult> results, int depth, String currentCentrality) {
+		String evalCFilename = DisambiguationResult.run(currentCentrality, depth, Globals.byCentralityMethod);
+		String evalDFilename = DisambiguationResult.run(currentCentrality, depth, Globals.runSolverMethod);
+		boolean cDone = this.executor.isDone(input.sentenceId, evalCFilename);
+		boolean dDone = this.executor.isDone(input.sentenceId, evalDFilename);
+		int[] owners = SentenceWindows.owners(windows, input.instances.size());
+		Map<Integer, JNode> mapC = new HashMap<Integer, JNode>();
+		Map<Integer, JNode> mapD = new HashMap<Integer, JNode>();
+		Duration expansion = Duration.ZERO;
+		Duration centrality = Duration.ZERO;
+		Duration tsp = Duration.ZERO;
+		int solverTimeouts = 0;
+		for (int i = 0; i < owners.length; i++) {
+			WindowResult owner = results.get(owners[i]);
+			int index = input.instances.get(i).index;
+			if (owner.mapC.containsKey(index)) {
+				mapC.put(index, owner.mapC.get(index));
+			}
+			if (owner.mapD != null && owner.mapD.containsKey(index)) {
+				mapD.put(index, owner.mapD.get(index));
+			}
+		}
+		for (WindowResult result : results) {
+			expansion = expansion.plus(result.expansion);
+			centrality = centrality.plus(result.centrality);
+			tsp = tsp.plus(result.tsp);
+			solverTimeouts += result.solverTimeouts;
+		}
+		JGraph dGraph = this.executor.newGraph(input.sentence, input.sentenceId);
+		JGraph cGraph = this.executor.newGraph(input.sentence, input.sentenceId);
+		cGraph.setConfiguration(evalCFilename, depth, currentCentrality);
+		dGraph.setConfiguration(evalDFilename, depth, currentCentrality);
+		if (!cDone) {
+			cGraph.log(Globals.logStatistics, "[WINDOWS] " + windows.size() + " windows of " + Globals.windowSize + " instances");
+			cGraph.log(Globals.logStatistics, "[TIME][DFS] " + expansion);
+			cGraph.log(Globals.logStatistics, "[TIME][CENTRALITY][" + currentCentrality + "] " + centrality);
+			cGraph.log(Globals.logStatistics, this.executor.sentenceTerms(mapC));
+			this.executor.publish(new DisambiguationResult(input.sentenceId, depth, currentCentrality, Globals.byCentralityMethod, mapC,
+					expansion, centrality, Duration.ZERO));
+		}
+		if (!dDone) {
+			dGraph.log(Globals.logStatistics, "[WINDOWS] " + windows.size() + " windows of " + Globals.windowSize + " instances");
+			dGraph.log(Globals.logStatistics, "[TIME][DFS] " + expansion);
+			dGraph.log(Globals.logStatistics, "[TIME][CENTRALITY][" + currentCentrality + "] " + centrality);
+			dGraph.log(Globals.logStatistics, "[TIME][TSP] " + tsp);
+			dGraph.log(Globals.logStatistics, this.executor.sentenceTerms(mapD));
+			this.executor.publish(new DisambiguationResult(input.sentenceId, depth, currentCentrality, Globals.runSolverMethod, mapD,
+					expansion, centrality, tsp).setSolverTimeouts(solverTimeouts));
+		}
+		Metrics.counter("configurations").increment();
+	}
+}
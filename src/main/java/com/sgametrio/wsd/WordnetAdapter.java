@@ -3,7 +3,6 @@
  */
 package com.sgametrio.wsd;
 
-import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
@@ -25,7 +24,7 @@ import edu.mit.jwi.item.POS;
 
 public class WordnetAdapter {
 		
-		private String path = Globals.wordnetHome + File.separator + "dict";
+		private String path;
 		private URL url; 
 		private IRAMDictionary dict;
 		private Map<String, POS> posMap = new HashMap<String, POS>(); //mapping of StanfordDependencyParser POS tag to WordNet ones
@@ -34,6 +33,14 @@ public class WordnetAdapter {
 		 * 
 		 */
 		public WordnetAdapter(){
+			this(Globals.path);
+		}
+		
+		/**
+		 * @param path WordNet dict directory (database files in WordNet format)
+		 */
+		public WordnetAdapter(String path){
+			this.path = path;
 			try{
 				this.url = new URL("file", null, path);
 			}catch(MalformedURLException e){
@@ -173,6 +180,14 @@ public class WordnetAdapter {
 			IWord word = null;
 			ISenseKey senseKey = SenseKeyParser.getInstance().parseLine(sense);
 			word = dict.getWord(senseKey);
+			return this.getMostCommonWord(word);
+		}
+		
+		/**
+		 * @param word
+		 * @return first sense of word lemma with the same POS
+		 */
+		public IWord getMostCommonWord(IWord word) {
 			IIndexWord idxWord = dict.getIndexWord(word.getLemma(), word.getPOS());
 			return dict.getWord(idxWord.getWordIDs().get(0));
 		}
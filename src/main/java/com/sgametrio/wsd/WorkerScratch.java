@@ -0,0 +1,93 @@
+package com.sgametrio.wsd;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+import edu.mit.jwi.item.IWord;
+
+/**
+ * Reusable buffers of a busy worker: maps, DFS path and arrays are reset instead of allocated
+ * for every sentence, and grow to the largest sentence seen.
+ * Buffers are pooled (as many as workers using them at the same time, platform or virtual threads):
+ * acquire, use on one thread, release. Released buffers keep no reference to nodes.
+ */
+public class WorkerScratch {
+	private static final Deque<WorkerScratch> idle = new ConcurrentLinkedDeque<WorkerScratch>();
+	// DFS expansion (addDFSNodes)
+	final Map<IWord, JNode> wordMap = new HashMap<IWord, JNode>();
+	final Map<IWord, JNode> originalWordMap = new HashMap<IWord, JNode>();
+	final ArrayList<IWord> path = new ArrayList<IWord>();
+	// Node -> index in vertex set order (closeness)
+	final Map<JNode, Integer> vertexIndex = new HashMap<JNode, Integer>();
+	private final int[][] ints = new int[4][0];
+	private boolean[] flags = new boolean[0];
+	private long[] longs = new long[0];
+
+	/**
+	 * @return idle buffers, new ones if all are in use
+	 */
+	public static WorkerScratch acquire() {
+		WorkerScratch scratch = idle.pollFirst();
+		if (scratch == null) {
+			scratch = new WorkerScratch();
+			Metrics.counter("scratch.created").increment();
+		}
+		return scratch;
+	}
+
+	/**
+	 * Clear references and give buffers back to the pool, they must not be used anymore
+	 */
+	public void release() {
+		this.wordMap.clear();
+		this.originalWordMap.clear();
+		this.path.clear();
+		this.vertexIndex.clear();
+		// Most recently used first: its arrays are the largest and warmest
+		idle.offerFirst(this);
+	}
+
+	/**
+	 * @param slot 0 to 3, every slot is a different array
+	 * @param size
+	 * @return array of at least size ints, content is left by the last user
+	 */
+	int[] ints(int slot, int size) {
+		if (this.ints[slot].length < size) {
+			this.ints[slot] = new int[grow(this.ints[slot].length, size)];
+		}
+		return this.ints[slot];
+	}
+
+	/**
+	 * @param size
+	 * @return array of at least size flags, the first size are false
+	 */
+	boolean[] flags(int size) {
+		if (this.flags.length < size) {
+			this.flags = new boolean[grow(this.flags.length, size)];
+		} else {
+			Arrays.fill(this.flags, 0, size, false);
+		}
+		return this.flags;
+	}
+
+	/**
+	 * @param size
+	 * @return array of at least size longs, content is left by the last user
+	 */
+	long[] longs(int size) {
+		if (this.longs.length < size) {
+			this.longs = new long[grow(this.longs.length, size)];
+		}
+		return this.longs;
+	}
+
+	private static int grow(int length, int size) {
+		return Math.max(size, length + (length >> 1));
+	}
+}
@@ -3,28 +3,106 @@ package com.sgametrio.wsd;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
+import java.io.IOException;
 import java.time.Duration;
 import java.time.Instant;
-import java.util.concurrent.CountDownLatch;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-
+import evaluation.EvaluationStatistics;
 import evaluation.ExtendedScorer;
-import evaluation.InputExtractor;
 import evaluation.InputSentence;
+import evaluation.Scorer;
+import evaluation.StreamingInputExtractor;
 
 public class WsdLauncher {
-	static CountDownLatch doneSignal = null;
+	// Collected while disambiguating, null if evaluation reads events
+	private static EvaluationStatistics statistics = null;
+	// Audited gated instances (JExecutor.getGatingAudit), empty if not measured by this process
+	private static Map<String, List<String[]>> gatingAudit = new HashMap<String, List<String[]>>();
 	
+	/**
+	 * @param a --resume to continue a stopped run (see Globals.resume),
+	 * --shards N to run N worker processes and merge their results, --shard i/N to run worker i,
+	 * --merge N to merge results of workers already run (see Globals.shardCount)
+	 */
 	public static void main(String a[]){
-		launchDisambiguationEvaluation();
+		// Globals is initialized only after output path of a worker is known
+		boolean resume = false;
+		int shards = 1;
+		int shard = -1;
+		boolean mergeOnly = false;
+		for (int i = 0; i < a.length; i++) {
+			if (a[i].equals("--resume")) {
+				resume = true;
+			} else if ((a[i].equals("--shards") || a[i].equals("--merge")) && i + 1 < a.length) {
+				mergeOnly = a[i].equals("--merge");
+				shards = Integer.parseInt(a[++i]);
+			} else if (a[i].equals("--shard") && i + 1 < a.length) {
+				String[] fields = a[++i].split("/");
+				shard = Integer.parseInt(fields[0]);
+				shards = Integer.parseInt(fields[1]);
+			}
+		}
+		if (shard >= 0 && System.getProperty("wsd.output") == null) {
+			System.setProperty("wsd.output", ShardRunner.shardPath(shard));
+		}
+		Globals.resume = resume;
+		if (shard >= 0) {
+			Globals.shardIndex = shard;
+			Globals.shardCount = shards;
+			launchDisambiguationEvaluation();
+		} else if (shards > 1) {
+			launchShards(shards, mergeOnly);
+		} else {
+			launchDisambiguationEvaluation();
+		}
+	}
+
+	/**
+	 * Run shards worker processes (unless mergeOnly), then merge their results and evaluate them
+	 * @param shards
+	 * @param mergeOnly
+	 */
+	private static void launchShards(int shards, boolean mergeOnly) {
+		Instant before = Instant.now();
+		System.out.println("--- Sharded evaluation started ---");
+		System.out.println("Initial time: " + before.toString());
+		System.out.println("Dataset used: " + Globals.currentDataset);
+		System.out.println("Shards: " + shards + (mergeOnly ? " (merge only)" : ""));
+		System.out.println("Resume: " + Globals.resume);
+		System.out.println("--------------------------");
+		try {
+			boolean merge = true;
+			if (!mergeOnly) {
+				if (!Globals.resume) {
+					// Workers don't delete solver files of each other
+					clearOldFiles();
+				}
+				merge = ShardRunner.runWorkers(shards);
+			}
+			if (merge) {
+				ShardRunner.merge(shards);
+				launchManyEvaluator(Globals.currentGoldFile);
+			} else {
+				System.out.println("[SHARDS] some workers failed, see " + Globals.shardsPath + "shard-*/output.txt, run again with --resume");
+			}
+		} catch (Exception e) {
+			System.err.print(Thread.currentThread().getStackTrace()[1].getMethodName()+" threw: ");
+			System.err.println(e);
+		}
+		Instant after = Instant.now();
+		System.out.println("Time executed: " + Duration.between(before, after));
 	}
 
 	
@@ -49,41 +127,131 @@ public class WsdLauncher {
 		}
 		System.out.println("Save GML: " + Globals.saveGml);
 		System.out.println("Run solver: " + Globals.runSolver);
+		System.out.println("Solver time limit: " + (Globals.solverTimeLimit > 0 ? Globals.solverTimeLimit + "s" : "none"));
+		System.out.println("Virtual threads: " + Globals.useVirtualThreads);
+		System.out.println("Scheduling: " + Globals.scheduling);
+		System.out.println("Document scope: " + Globals.documentScope);
+		System.out.println("Parallel configurations: " + Globals.parallelConfigurations);
+		System.out.println("Resume: " + Globals.resume);
+		if (Globals.shardCount > 1) {
+			System.out.println("Shard: " + Globals.shardIndex + "/" + Globals.shardCount + " in " + Globals.outputPath);
+		}
 		System.out.println("--------------------------");
 		
-		//deletes all files generated by previous executions
-		clearOldFiles();
-		// TODO: move this code to InputExtractor
+		ProgressJournal journal = null;
+		KeyFileSink keyFiles = null;
 		try {
-			DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-			DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
-			Document doc = dBuilder.parse(new File(Globals.currentDataFile));
-			//optional, but recommended
-			doc.getDocumentElement().normalize();
-			//get all sentences in xml file
-			NodeList allSentences = doc.getElementsByTagName("sentence");
-			int sentences = allSentences.getLength();
-			doneSignal = new CountDownLatch(sentences);
+			if (Globals.resume) {
+				journal = resume();
+			} else {
+				//deletes all files generated by previous executions
+				clearOldFiles();
+				journal = new ProgressJournal(Globals.journalFile);
+			}
+			keyFiles = new KeyFileSink(Globals.resultsPath, Globals.currentDataset, journal);
+			ex.addSink(keyFiles);
+			ex.setJournal(journal);
+			if (Globals.shardCount == 1 && new File(Globals.currentGoldFile).exists()) {
+				statistics = new EvaluationStatistics(Globals.currentGoldFile, ex.getWordnet());
+				ex.addSink(statistics);
+			}
+			int threads = Runtime.getRuntime().availableProcessors();
 			// Create thread pool
-			ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());			
-			//iterate over all sentences and send them to inputExtractor to be processed
-			for (int sentIndex = 0; sentIndex < allSentences.getLength(); sentIndex++) {
-				Node sentence = allSentences.item(sentIndex);
-				InputSentence iSentence = InputExtractor.myExtractInput(sentence);
-				SentenceRunner runner = new SentenceRunner(ex, iSentence, doneSignal);
-			    executor.execute(runner);
+			ExecutorService executor = createExecutor(threads);
+			if (Globals.useVirtualThreads && !(executor instanceof ThreadPoolExecutor || executor instanceof ForkJoinPool)) {
+				threads = Globals.virtualSentences;
+			}
+			// At most sentenceQueueSize sentences wait for a thread: reader blocks until one finishes
+			Semaphore queue = new Semaphore(threads + Globals.sentenceQueueSize);
+			//stream all sentences in xml file and submit them while parsing
+			StreamingInputExtractor sentences = new StreamingInputExtractor(new File(Globals.currentDataFile));
+			// Whole dataset, filled only by largest-first scheduling: fifo streams sentences
+			List<InputSentence> fifo = new ArrayList<InputSentence>();
+			Iterator<InputSentence> order = sentences;
+			List<InputSentence> ordered = fifo;
+			SentenceScheduler scheduler = null;
+			if (Globals.scheduling.equals(Globals.largestFirstScheduling)) {
+				// Costs must be known up front: read the whole dataset before submitting
+				while (sentences.hasNext()) {
+					InputSentence iSentence = sentences.next();
+					if (ShardRunner.inShard(iSentence.sentenceId)) {
+						fifo.add(iSentence);
+					}
+				}
+				scheduler = new SentenceScheduler(Globals.costProfileFile);
+				ordered = scheduler.largestFirst(fifo, ex);
+				if (Globals.documentScope) {
+					ordered = scheduler.largestDocumentsFirst(fifo);
+				}
+				System.out.println("[SCHEDULING] estimated makespan " 
+						+ SentenceScheduler.report(fifo, ordered, scheduler.getEstimates(), threads, scheduler.hasProfile()));
+				order = ordered.iterator();
+			}
+			int submitted = 0;
+			// Consecutive sentences of the same document, submitted together
+			List<InputSentence> document = new ArrayList<InputSentence>();
+			while (order.hasNext()) {
+				InputSentence iSentence = order.next();
+				if (!ShardRunner.inShard(iSentence.sentenceId))
+					continue;
+				submitted++;
+				if (Globals.documentScope) {
+					if (!document.isEmpty() && !DocumentContext.documentId(iSentence.sentenceId).equals(DocumentContext.documentId(document.get(0).sentenceId))) {
+						queue.acquire();
+						executor.execute(new SentenceRunner(ex, document, queue));
+						document = new ArrayList<InputSentence>();
+					}
+					document.add(iSentence);
+					continue;
+				}
+				queue.acquire();
+				SentenceRunner runner = new SentenceRunner(ex, iSentence, queue);
+				executor.execute(runner);
 			}
+			if (!document.isEmpty()) {
+				queue.acquire();
+				executor.execute(new SentenceRunner(ex, document, queue));
+			}
+			sentences.close();
+			System.out.println("Sentences read: " + submitted);
 			
 			// Start evaluation only when all thread are finished
 			executor.shutdown();
 			// wait until all are finished
-			doneSignal.await();
-			while (!executor.isTerminated());
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+			keyFiles.close();
+			journal.close();
+			// Scorer reads events
+			EventLogger.close();
 			System.out.println("Finished results");
+			if (Globals.resume) {
+				System.out.println("[RESUME] sentences skipped: " + Metrics.counter("sentences.resumed").getValue());
+			}
+			if (scheduler != null) {
+				System.out.println("[SCHEDULING] makespan with measured costs " 
+						+ SentenceScheduler.report(fifo, ordered, ex.getSentenceCosts(), threads, true));
+			}
+			SentenceScheduler.updateProfile(Globals.costProfileFile, ex.getSentenceCosts());
+			if (Globals.solverTimeLimit > 0) {
+				System.out.println("Solver timeouts: " + ex.getSolverTimeouts() + " (time limit " + Globals.solverTimeLimit + "s)");
+			}
+			if (Globals.confidenceGating) {
+				System.out.println(ex.getGatingStatistics());
+				gatingAudit = ex.getGatingAudit();
+			}
+			if (Globals.portfolioSize > 1) {
+				System.out.println(ex.getPortfolioStatistics());
+			}
+
+			System.out.print(Metrics.summary());
 
 			// Remember to close dictionary
 			ex.closeDictionary();
-			launchManyEvaluator(Globals.currentGoldFile);
+			if (Globals.shardCount > 1) {
+				System.out.println("[SHARDS] shard " + Globals.shardIndex + "/" + Globals.shardCount + " done, evaluated by merge");
+			} else {
+				launchManyEvaluator(Globals.currentGoldFile);
+			}
 		} catch (Exception e) {
 			// Remember to close dictionary
 			ex.closeDictionary();
@@ -94,22 +262,81 @@ public class WsdLauncher {
 		System.out.println("Time executed: " + Duration.between(before, after));
 	}
 	
+	/**
+	 * @param threads
+	 * @return virtual thread per task executor if enabled and supported by the JVM,
+	 * fixed thread pool otherwise
+	 */
+	private static ExecutorService createExecutor(int threads) {
+		if (Globals.useVirtualThreads) {
+			ExecutorService executor = ThreadPools.newVirtualThreadExecutor();
+			if (executor != null) {
+				return executor;
+			}
+			System.out.println("Virtual threads not supported by this JVM, using " + threads + " threads");
+		}
+		if (Globals.scheduling.equals(Globals.largestFirstScheduling)) {
+			return Executors.newWorkStealingPool(threads);
+		}
+		return Executors.newFixedThreadPool(threads);
+	}
+	
 	private static void launchManyEvaluator(String currentgoldfile) {
 		for (int depth = Globals.minDepth; depth <= Globals.maxDepth; depth++) {
 			for (String currentCentrality : Globals.centralities) {
-				String filename = Globals.currentDataset + "_" + currentCentrality + "_" + depth;
-				 
-				String evalCFilename = filename + "_by-centrality";
-				String evalDFilename = filename + "_run-solver";
+				String evalCFilename = DisambiguationResult.run(currentCentrality, depth, Globals.byCentralityMethod);
+				String evalDFilename = DisambiguationResult.run(currentCentrality, depth, Globals.runSolverMethod);
 
 				launchEvaluator(currentgoldfile, evalCFilename);
 				launchEvaluator(currentgoldfile, evalDFilename);
+				if (Globals.confidenceGating) {
+					printGatingDelta(currentgoldfile, evalDFilename);
+				}
 			}
 		}
 		printCsvReport();
 	}
 
 
+	/**
+	 * Prints F1 of gated and ungated TSP disambiguation on terms of audited instances (Globals.gatingAuditRate):
+	 * every audited term has both answers, so F1 is their accuracy
+	 * @param goldFile
+	 * @param solverFilename
+	 */
+	private static void printGatingDelta(String goldFile, String solverFilename) {
+		List<String[]> terms = gatingAudit.get(solverFilename);
+		if (terms == null || terms.isEmpty()) {
+			System.out.println("[GATING] " + solverFilename + " no audited instance, F1 change not measured");
+			return;
+		}
+		try {
+			Map<String, Set<String>> gold = new HashMap<String, Set<String>>();
+			Scorer.readFile(new File(goldFile), gold);
+			int scored = 0;
+			int gatedCorrect = 0;
+			int ungatedCorrect = 0;
+			for (String[] term : terms) {
+				Set<String> keys = gold.get(term[0]);
+				if (keys == null)
+					continue;
+				scored++;
+				if (keys.contains(term[1]))
+					gatedCorrect++;
+				if (keys.contains(term[2]))
+					ungatedCorrect++;
+			}
+			if (scored == 0)
+				return;
+			double gated = 100.0 * gatedCorrect / scored;
+			double ungated = 100.0 * ungatedCorrect / scored;
+			System.out.println("[GATING] " + solverFilename + " on " + scored + " audited terms: gated F1 " + String.format("%.2f", gated)
+					+ " ungated F1 " + String.format("%.2f", ungated) + " delta " + String.format("%+.2f", gated - ungated));
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
 	private static void printCsvReport() {
 		try {
 			BufferedReader csv = new BufferedReader(new FileReader(Globals.csvReportFile));
@@ -131,9 +358,33 @@ public class WsdLauncher {
 	 */
 	public static void launchEvaluator(String goldStandardPathToFile, String resultsPathToFile) {
 		ExtendedScorer extended_scorer = new ExtendedScorer();
-		extended_scorer.doEvaluation(goldStandardPathToFile, resultsPathToFile);
+		extended_scorer.doEvaluation(goldStandardPathToFile, resultsPathToFile, statistics);
 	}
 	
+	/**
+	 * Keep files of the stopped run: results of units not in journal are removed from key files
+	 * (they are computed again), events of previous runs are read back by the scorer
+	 * @return journal of previous runs
+	 * @throws IOException
+	 */
+	private static ProgressJournal resume() throws IOException {
+		new File(Globals.logsPath).mkdirs();
+		new File(Globals.gmlPath).mkdirs();
+		new File(Globals.gtspPath).mkdirs();
+		new File(Globals.tourPath).mkdirs();
+		new File(Globals.resultsPath).mkdirs();
+		ProgressJournal journal = new ProgressJournal(Globals.journalFile);
+		int removed = 0;
+		for (File file : new File(Globals.resultsPath).listFiles()) {
+			if (file.getName().endsWith(Globals.resultsExt)) {
+				removed += journal.trim(file);
+			}
+		}
+		EventLogger.includePreviousRuns(journal);
+		System.out.println("[RESUME] " + journal.size() + " units done, " + removed + " unfinished results removed");
+		return journal;
+	}
+
 	/**
 	 * clear all old files generated by tsp solver and wsd algorithm (.tour, .gtsp, log, .gml).
 	 */
@@ -156,19 +407,21 @@ public class WsdLauncher {
 		} else {
 			gml.mkdirs();
 		}
-		if (gtsp.isDirectory()) {
+		// Solver files are shared by shards workers, cleared once by launchShards
+		boolean sharedFiles = Globals.shardCount > 1;
+		if (gtsp.isDirectory() && !sharedFiles) {
 			for(File gtspFile: gtsp.listFiles()){
 				gtspFile.delete();
 			}
 		} else {
 			gtsp.mkdirs();
 		}
-		if (pi_files.isDirectory()) {
+		if (pi_files.isDirectory() && !sharedFiles) {
 			for(File pi: pi_files.listFiles()){
 				pi.delete();
 			}
 		} 
-		if (tour.isDirectory()) {
+		if (tour.isDirectory() && !sharedFiles) {
 			for(File tourFile: tour.listFiles()){
 				tourFile.delete();
 			}
@@ -0,0 +1,167 @@
+package com.sgametrio.wsd;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import evaluation.InputInstance;
+import evaluation.InputSentence;
+import evaluation.StreamingInputExtractor;
+
+/**
+ * Local load test of WsdServer: sends dataset sentences from concurrent clients and reports latency percentiles.
+ *
+ * args: url dataFile [clients] [requests] [warmup]
+ * e.g. http://localhost:8080/disambiguate?depth=3&amp;centrality=page-rank&amp;method=run-solver
+ */
+public class WsdLoadClient {
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2) {
+			System.err.println("Usage: WsdLoadClient url dataFile [clients] [requests] [warmup]");
+			return;
+		}
+		final URL url = new URL(args[0]);
+		int clients = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		int requests = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+		int warmup = args.length > 4 ? Integer.parseInt(args[4]) : 100;
+
+		final List<String> bodies = new ArrayList<String>();
+		StreamingInputExtractor sentences = new StreamingInputExtractor(new File(args[1]));
+		while (sentences.hasNext()) {
+			bodies.add(toXml(sentences.next()));
+		}
+		sentences.close();
+		if (bodies.isEmpty()) {
+			System.err.println("No sentences in " + args[1]);
+			return;
+		}
+		System.out.println("Warm-up: " + warmup + " requests");
+		run(url, bodies, clients, warmup);
+		System.out.println("Load test: " + requests + " requests, " + clients + " clients, " + bodies.size() + " distinct sentences");
+		long start = System.nanoTime();
+		long[] latencies = run(url, bodies, clients, requests);
+		long elapsed = System.nanoTime() - start;
+		report(latencies, elapsed);
+	}
+
+	/**
+	 * Send requests sentences (round robin over bodies) from clients threads
+	 * @return latency of every request in nanoseconds, -1 for failed requests
+	 */
+	private static long[] run(final URL url, final List<String> bodies, int clients, final int requests) throws InterruptedException {
+		final long[] latencies = new long[requests];
+		final AtomicInteger next = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(clients);
+		for (int c = 0; c < clients; c++) {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					int i;
+					while ((i = next.getAndIncrement()) < requests) {
+						long before = System.nanoTime();
+						boolean ok = post(url, bodies.get(i % bodies.size()));
+						latencies[i] = ok ? System.nanoTime() - before : -1;
+					}
+				}
+			});
+		}
+		executor.shutdown();
+		executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+		return latencies;
+	}
+
+	private static boolean post(URL url, String body) {
+		try {
+			HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+			connection.setRequestMethod("POST");
+			connection.setDoOutput(true);
+			connection.setRequestProperty("Content-Type", "application/xml; charset=utf-8");
+			OutputStream out = connection.getOutputStream();
+			out.write(body.getBytes(StandardCharsets.UTF_8));
+			out.close();
+			int status = connection.getResponseCode();
+			InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+			// Read whole response so connection can be reused
+			ByteArrayOutputStream response = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int read;
+			while (in != null && (read = in.read(buffer)) != -1) {
+				response.write(buffer, 0, read);
+			}
+			if (in != null)
+				in.close();
+			if (status != 200) {
+				System.err.println("[HTTP " + status + "] " + response.toString("UTF-8"));
+			}
+			return status == 200;
+		} catch (Exception e) {
+			System.err.println(e);
+			return false;
+		}
+	}
+
+	private static void report(long[] latencies, long elapsed) {
+		long[] ok = new long[latencies.length];
+		int n = 0;
+		for (long latency : latencies) {
+			if (latency >= 0)
+				ok[n++] = latency;
+		}
+		System.out.println("Failed requests: " + (latencies.length - n));
+		if (n == 0)
+			return;
+		ok = Arrays.copyOf(ok, n);
+		Arrays.sort(ok);
+		System.out.println("Throughput: " + String.format("%.2f", n / (elapsed / 1e9)) + " requests/s");
+		System.out.println("p50: " + Duration.ofNanos(percentile(ok, 50)));
+		System.out.println("p90: " + Duration.ofNanos(percentile(ok, 90)));
+		System.out.println("p99: " + Duration.ofNanos(percentile(ok, 99)));
+		System.out.println("max: " + Duration.ofNanos(ok[n - 1]));
+	}
+
+	/**
+	 * Nearest rank percentile
+	 * @param sorted ascending values
+	 * @param p
+	 */
+	private static long percentile(long[] sorted, double p) {
+		int rank = (int) Math.ceil(p / 100 * sorted.length);
+		return sorted[Math.max(rank, 1) - 1];
+	}
+
+	/**
+	 * @param sentence
+	 * @return sentence in evaluation dataset format
+	 */
+	public static String toXml(InputSentence sentence) {
+		StringBuilder xml = new StringBuilder();
+		xml.append("<sentence id=\"").append(escape(sentence.sentenceId)).append("\">\n");
+		for (InputInstance i : sentence.instances) {
+			String tag = i.id == null ? "wf" : "instance";
+			xml.append('<').append(tag);
+			if (i.id != null)
+				xml.append(" id=\"").append(escape(i.id)).append('"');
+			xml.append(" lemma=\"").append(escape(i.lemma)).append("\" pos=\"").append(escape(i.pos)).append("\">")
+				.append(escape(i.term)).append("</").append(tag).append(">\n");
+		}
+		xml.append("</sentence>\n");
+		return xml.toString();
+	}
+
+	private static String escape(String s) {
+		return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+	}
+}
@@ -0,0 +1,189 @@
+package com.sgametrio.wsd;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.xml.stream.XMLStreamException;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import evaluation.StreamingInputExtractor;
+
+/**
+ * Local disambiguation server: WordNet is loaded once and kept warm (with solutions cache) between requests.
+ *
+ * POST /disambiguate?depth=3&centrality=page-rank&method=run-solver
+ * body: one or more <sentence> elements in evaluation dataset format (wrapped in any root element)
+ * response: {"depth":3,"centrality":"page-rank","method":"run-solver","time":"PT0.2S","sentences":[
+ *   {"id":"d000.s000","senses":[{"id":"d000.s000.t000","sense":"say%2:32:00::","centrality":0.12}]}]}
+ *
+ * GET /health answers "ok" once dictionary is loaded
+ */
+public class WsdServer {
+	private final Disambiguator disambiguator;
+	private final HttpServer server;
+	private final ExecutorService requestExecutor;
+
+	public WsdServer(int port, int threads) throws IOException {
+		this.disambiguator = new Disambiguator();
+		this.server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+		this.requestExecutor = Executors.newFixedThreadPool(threads);
+		this.server.setExecutor(this.requestExecutor);
+		this.server.createContext("/disambiguate", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				handleDisambiguate(exchange);
+			}
+		});
+		this.server.createContext("/health", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				reply(exchange, 200, "text/plain", "ok");
+			}
+		});
+	}
+
+	public static void main(String[] args) {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : Globals.serverPort;
+		int threads = Globals.serverThreads > 0 ? Globals.serverThreads : Runtime.getRuntime().availableProcessors();
+		try {
+			final WsdServer server = new WsdServer(port, threads);
+			Runtime.getRuntime().addShutdownHook(new Thread() {
+				@Override
+				public void run() {
+					server.stop();
+				}
+			});
+			server.start();
+			System.out.println("Disambiguation server listening on localhost:" + port + " (" + threads + " threads)");
+		} catch (IOException e) {
+			System.err.print(Thread.currentThread().getStackTrace()[1].getMethodName()+" threw: ");
+			System.err.println(e);
+		}
+	}
+
+	public void start() {
+		this.server.start();
+	}
+
+	public void stop() {
+		this.server.stop(1);
+		this.requestExecutor.shutdown();
+		try {
+			this.disambiguator.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private void handleDisambiguate(HttpExchange exchange) throws IOException {
+		if (!exchange.getRequestMethod().equalsIgnoreCase("POST")) {
+			reply(exchange, 405, "text/plain", "POST a sentence to disambiguate");
+			return;
+		}
+		Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+		int depth;
+		try {
+			depth = params.containsKey("depth") ? Integer.parseInt(params.get("depth")) : Globals.nodesDepth;
+		} catch (NumberFormatException e) {
+			reply(exchange, 400, "text/plain", "depth must be an integer");
+			return;
+		}
+		String centrality = params.containsKey("centrality") ? params.get("centrality") : Globals.computeCentrality;
+		String method = params.containsKey("method") ? params.get("method") : (Globals.runSolver ? Globals.runSolverMethod : Globals.byCentralityMethod);
+		if (depth < 0 || !Disambiguator.isKnownCentrality(centrality) || !Disambiguator.isKnownMethod(method)) {
+			reply(exchange, 400, "text/plain", "Bad configuration: depth " + depth + " centrality " + centrality + " method " + method);
+			return;
+		}
+		Instant before = Instant.now();
+		StringBuilder json = new StringBuilder();
+		json.append("{\"depth\":").append(depth)
+			.append(",\"centrality\":\"").append(escape(centrality))
+			.append("\",\"method\":\"").append(method).append("\",\"sentences\":[");
+		InputStream body = exchange.getRequestBody();
+		try {
+			StreamingInputExtractor sentences = new StreamingInputExtractor(body);
+			boolean first = true;
+			while (sentences.hasNext()) {
+				DisambiguationResult result = this.disambiguator.disambiguate(sentences.next(), depth, centrality, method);
+				if (!first)
+					json.append(',');
+				first = false;
+				appendResult(json, result);
+			}
+			sentences.close();
+		} catch (XMLStreamException | IllegalStateException e) {
+			reply(exchange, 400, "text/plain", "Malformed sentence: " + e.getMessage());
+			return;
+		} catch (RuntimeException e) {
+			e.printStackTrace();
+			reply(exchange, 500, "text/plain", e.toString());
+			return;
+		}
+		json.append("],\"time\":\"").append(Duration.between(before, Instant.now())).append("\"}");
+		reply(exchange, 200, "application/json", json.toString());
+	}
+
+	private static void appendResult(StringBuilder json, DisambiguationResult result) {
+		json.append("{\"id\":\"").append(escape(result.getSentenceId())).append("\",\"senses\":[");
+		boolean first = true;
+		for (JNode v : result.getSenses().values()) {
+			if (!first)
+				json.append(',');
+			first = false;
+			json.append("{\"id\":\"").append(escape(v.getTermId()))
+				.append("\",\"sense\":\"").append(escape(v.getSenseKey()))
+				.append("\",\"centrality\":").append(v.getCentrality()).append('}');
+		}
+		json.append("]}");
+	}
+
+	private static Map<String, String> parseQuery(String query) throws UnsupportedEncodingException {
+		Map<String, String> params = new HashMap<String, String>();
+		if (query == null)
+			return params;
+		for (String pair : query.split("&")) {
+			int eq = pair.indexOf('=');
+			if (eq > 0) {
+				params.put(URLDecoder.decode(pair.substring(0, eq), "UTF-8"), URLDecoder.decode(pair.substring(eq + 1), "UTF-8"));
+			}
+		}
+		return params;
+	}
+
+	private static String escape(String s) {
+		StringBuilder escaped = new StringBuilder();
+		for (char c : s.toCharArray()) {
+			if (c == '"' || c == '\\') {
+				escaped.append('\\').append(c);
+			} else if (c < 0x20) {
+				escaped.append(String.format("\\u%04x", (int) c));
+			} else {
+				escaped.append(c);
+			}
+		}
+		return escaped.toString();
+	}
+
+	private static void reply(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=utf-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		OutputStream out = exchange.getResponseBody();
+		out.write(bytes);
+		out.close();
+	}
+}
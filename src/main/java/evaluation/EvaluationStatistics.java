@@ -0,0 +1,174 @@
+package evaluation;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.sgametrio.wsd.DisambiguationResult;
+import com.sgametrio.wsd.Globals;
+import com.sgametrio.wsd.JNode;
+import com.sgametrio.wsd.Metrics.Histogram;
+import com.sgametrio.wsd.ResultSink;
+import com.sgametrio.wsd.WordnetAdapter;
+
+import edu.mit.jwi.item.IWord;
+import edu.mit.jwi.item.POS;
+import edu.mit.jwi.item.SenseKey;
+
+/**
+ * Statistics of ExtendedScorer collected while disambiguating: every published result is compared
+ * with the gold standard at once and counted per configuration, so reports need no pass over events.
+ * Only results of this process are counted: resumed and sharded runs are scored from events
+ */
+public class EvaluationStatistics implements ResultSink {
+	// term id -> first gold sense key
+	private final Map<String, String> gold = new HashMap<String, String>();
+	private final WordnetAdapter wordnet;
+	private final Map<String, RunStatistics> runs = new ConcurrentHashMap<String, RunStatistics>();
+	// lemma and POS -> most common sense
+	private final Map<String, IWord> mostCommon = new ConcurrentHashMap<String, IWord>();
+
+	/**
+	 * Counters of one configuration
+	 */
+	static class RunStatistics {
+		final Set<String> sentences = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+		final LongAdder terms = new LongAdder();
+		final LongAdder mostCommonTerms = new LongAdder();
+		final LongAdder goldMostCommonTerms = new LongAdder();
+		final LongAdder correct = new LongAdder();
+		final LongAdder correctMostCommon = new LongAdder();
+		final LongAdder zeroCentrality = new LongAdder();
+		final LongAdder zeroCentralityMostCommon = new LongAdder();
+		final LongAdder zeroCentralityMostCommonCorrect = new LongAdder();
+		final LongAdder zeroCentralityCorrect = new LongAdder();
+		final LongAdder solverTimeouts = new LongAdder();
+		// Filled once, then only read: safe without locks
+		final Map<POS, LongAdder> totalPOS = new EnumMap<POS, LongAdder>(POS.class);
+		final Map<POS, LongAdder> correctPOS = new EnumMap<POS, LongAdder>(POS.class);
+		// Per sentence times (nanoseconds)
+		final Histogram dfs = new Histogram(true);
+		final Histogram centrality = new Histogram(true);
+		final Histogram tsp = new Histogram(true);
+
+		RunStatistics() {
+			for (POS pos : POS.values()) {
+				this.totalPOS.put(pos, new LongAdder());
+				this.correctPOS.put(pos, new LongAdder());
+			}
+		}
+	}
+
+	/**
+	 * @param goldFile
+	 * @param wordnet dictionary of the disambiguation, to find most common senses
+	 * @throws IOException
+	 */
+	public EvaluationStatistics(String goldFile, WordnetAdapter wordnet) throws IOException {
+		this.wordnet = wordnet;
+		BufferedReader reader = new BufferedReader(new FileReader(new File(goldFile)));
+		String line;
+		while ((line = reader.readLine()) != null) {
+			String[] fields = line.split(" ");
+			if (fields.length >= 2) {
+				this.gold.put(fields[0], fields[1]);
+			}
+		}
+		reader.close();
+	}
+
+	@Override
+	public void accept(DisambiguationResult result) {
+		RunStatistics statistics = this.get(result.getRun());
+		statistics.dfs.record(result.getExpansionTime().toNanos());
+		statistics.centrality.record(result.getCentralityTime().toNanos());
+		if (result.getMethod().equals(Globals.runSolverMethod)) {
+			statistics.tsp.record(result.getDisambiguationTime().toNanos());
+		}
+		statistics.solverTimeouts.add(result.getSolverTimeouts());
+		for (JNode v : result.getSenses().values()) {
+			String goldKey = this.gold.get(v.getTermId());
+			if (goldKey == null)
+				continue;
+			IWord common = this.mostCommon(v.getWord());
+			String commonKey = SenseKey.toString(common.getSenseKey());
+			boolean isMostCommon = v.getSenseKey().equals(commonKey);
+			boolean isCorrect = v.getSenseKey().equals(goldKey);
+			statistics.terms.increment();
+			if (isMostCommon)
+				statistics.mostCommonTerms.increment();
+			if (goldKey.equals(commonKey))
+				statistics.goldMostCommonTerms.increment();
+			if (isCorrect) {
+				statistics.correct.increment();
+				statistics.correctPOS.get(common.getPOS()).increment();
+				if (isMostCommon)
+					statistics.correctMostCommon.increment();
+			}
+			if ((float) v.getCentrality() == 0.0f) {
+				statistics.zeroCentrality.increment();
+				if (isMostCommon) {
+					statistics.zeroCentralityMostCommon.increment();
+					if (isCorrect)
+						statistics.zeroCentralityMostCommonCorrect.increment();
+				}
+				if (isCorrect)
+					statistics.zeroCentralityCorrect.increment();
+			}
+			statistics.totalPOS.get(common.getPOS()).increment();
+		}
+		// Last: a sentence counts as covered only with all its terms
+		statistics.sentences.add(result.getSentenceId());
+	}
+
+	/**
+	 * @param run key file name without extension
+	 * @param sentences sentences of run key file
+	 * @return true if results of all sentences have been counted by this process
+	 */
+	public boolean covers(String run, Collection<String> sentences) {
+		RunStatistics statistics = this.runs.get(run);
+		return statistics != null && statistics.sentences.containsAll(sentences);
+	}
+
+	/**
+	 * @param run
+	 * @return counters of run, null if no result of run was published
+	 */
+	RunStatistics getRun(String run) {
+		return this.runs.get(run);
+	}
+
+	private RunStatistics get(String run) {
+		RunStatistics statistics = this.runs.get(run);
+		if (statistics == null) {
+			this.runs.putIfAbsent(run, new RunStatistics());
+			statistics = this.runs.get(run);
+		}
+		return statistics;
+	}
+
+	private IWord mostCommon(IWord word) {
+		String key = word.getLemma() + "#" + word.getPOS();
+		IWord common = this.mostCommon.get(key);
+		if (common == null) {
+			common = this.wordnet.getMostCommonWord(word);
+			this.mostCommon.put(key, common);
+		}
+		return common;
+	}
+
+	@Override
+	public void close() {
+		// Nothing to flush
+	}
+}
@@ -6,13 +6,19 @@ import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.StringReader;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
+import com.sgametrio.wsd.EventLogger;
 import com.sgametrio.wsd.Globals;
+import com.sgametrio.wsd.Metrics.Histogram;
 import com.sgametrio.wsd.WordnetAdapter;
 
 import edu.mit.jwi.item.IWord;
@@ -23,6 +29,17 @@ public class ExtendedScorer extends Scorer {
 	WordnetAdapter wordnet = null;
 	
 	public void doEvaluation(String goldFile, String evaluationFile) {
+		this.doEvaluation(goldFile, evaluationFile, null);
+	}
+
+	/**
+	 * Write report and csv line of a configuration
+	 * @param goldFile
+	 * @param evaluationFile key file name without extension
+	 * @param statistics collected while disambiguating, used instead of events if they cover all
+	 * sentences of the key file; may be null
+	 */
+	public void doEvaluation(String goldFile, String evaluationFile, EvaluationStatistics statistics) {
 		// Retrieve info by file name
 		String run [] = evaluationFile.split("_");
 		String dataset = run[0];
@@ -42,7 +59,10 @@ public class ExtendedScorer extends Scorer {
 		Map<String, Map<String, ArrayList<String>>> evalMap = null;
 		goldMap = readFileToMap(gold);
 		evalMap = readFileToMap(evaluation);
-		this.wordnet = new WordnetAdapter();
+		EvaluationStatistics.RunStatistics streamed = null;
+		if (statistics != null && statistics.covers(evaluationFile, evalMap.keySet())) {
+			streamed = statistics.getRun(evaluationFile);
+		}
 		// Global dataset statistics
 		int goldTerms = goldMap.size();
 		int goldMostCommonTerms = 0;
@@ -56,6 +76,7 @@ public class ExtendedScorer extends Scorer {
 		int zeroCentralityCorrect = 0;
 		int sameCentralityMostCommon = 0;
 		int sameCentralityDisambiguation = 0;
+		int solverTimeouts = 0;
 		int nouns = 0;
 		int verbs = 0;
 		int adj = 0;
@@ -79,17 +100,43 @@ public class ExtendedScorer extends Scorer {
 		ArrayList<Float> correctMostCommonPrecision = new ArrayList<Float>();
 		ArrayList<Float> zeroCentralityPrecision = new ArrayList<Float>();
 		ArrayList<Integer> mostCommons = new ArrayList<Integer>();
-		ArrayList<String> sameCentralityIds = new ArrayList<String>();
-		// Read log file and extract statistics
+		Set<String> sameCentralityIds = new HashSet<String>();
+		Map<String, IWord> mostCommonWords = new HashMap<String, IWord>();
+		Map<String, String> logs = null;
+		Set<String> sentences = evalMap.keySet();
+		if (streamed != null) {
+			// Counted while disambiguating: no event to read
+			evalTerms = streamed.terms.intValue();
+			evalMostCommonTerms = streamed.mostCommonTerms.intValue();
+			goldMostCommonTerms = streamed.goldMostCommonTerms.intValue();
+			correctDisambiguations = streamed.correct.intValue();
+			correctEvalMostCommonTerms = streamed.correctMostCommon.intValue();
+			zeroCentralityTerms = streamed.zeroCentrality.intValue();
+			zeroCentralityMostCommonTerms = streamed.zeroCentralityMostCommon.intValue();
+			zeroCentralityMostCommonCorrect = streamed.zeroCentralityMostCommonCorrect.intValue();
+			zeroCentralityCorrect = streamed.zeroCentralityCorrect.intValue();
+			solverTimeouts = streamed.solverTimeouts.intValue();
+			for (POS pos : POS.values()) {
+				totalPOS.put(pos, streamed.totalPOS.get(pos).intValue());
+				correctPOS.put(pos, streamed.correctPOS.get(pos).intValue());
+			}
+			sentences = Collections.emptySet();
+		} else {
+			this.wordnet = new WordnetAdapter();
+			// Read logged events and extract statistics
+			logs = EventLogger.readMessages(evaluationFile);
+		}
 		// Now sentence by sentence, evaluate 
-		for (String sentence_id : evalMap.keySet()) {
+		for (String sentence_id : sentences) {
 			// If the fragment of text annotated by the system is not contained in the gold
 			// standard then skip it.
 			if (!goldMap.containsKey(sentence_id)) 
 				continue;
 			BufferedReader log;
 			try {
-				log = new BufferedReader(new FileReader(Globals.logsPath + evaluationFile + "_" + sentence_id + ".log"));
+				if (!logs.containsKey(sentence_id))
+					throw new FileNotFoundException("No events of " + evaluationFile + " for sentence " + sentence_id);
+				log = new BufferedReader(new StringReader(logs.get(sentence_id)));
 				String line = "";
 				while ((line = log.readLine()) != null) {
 					if (line.contains("[SENTENCE TERMS]")) {
@@ -111,7 +158,11 @@ public class ExtendedScorer extends Scorer {
 							String eval_sense_key = info[1];
 							float centrality = Float.parseFloat(info[info.length-1]);
 							// for every sense_key find most common sense (the first retrieved by wordnet
-							IWord mostCommon = this.wordnet.getMostCommonWord(eval_sense_key);
+							IWord mostCommon = mostCommonWords.get(eval_sense_key);
+							if (mostCommon == null) {
+								mostCommon = this.wordnet.getMostCommonWord(eval_sense_key);
+								mostCommonWords.put(eval_sense_key, mostCommon);
+							}
 							String senseKeyMostCommon = SenseKey.toString(mostCommon.getSenseKey());
 							
 							String gold_sense_key = goldMap.get(sentence_id).get(instance_id).get(0);
@@ -175,6 +226,8 @@ public class ExtendedScorer extends Scorer {
 						} else if (line.contains("[TOTAL]")) {
 							totalTimes.add(d);
 						} 
+					} else if (line.contains("[SOLVER TIMEOUT]") && line.contains("stopped after")) {
+						solverTimeouts++;
 					} else if (line.contains("[SAME CENTRALITIES]")) {
 						String id = line.split(" ")[2];
 						sameCentralityIds.add(id);
@@ -204,6 +257,7 @@ public class ExtendedScorer extends Scorer {
 				+ "correct terms zero centrality => " + zeroCentralityCorrect + "\n"
 				+ "zero centrality most common bias => " + (float) zeroCentralityMostCommonTerms / zeroCentralityTerms + "\n"
 				+ "most common bias => " + (float) evalMostCommonTerms / evalTerms +  "\n"
+				+ "solver timeouts => " + solverTimeouts + "\n"
 				+ "\n";
 		for (POS pos : POS.values()) {
 			String log = pos + ": total => " + totalPOS.get(pos) + " correct => " + correctPOS.get(pos) + "\n";
@@ -241,6 +295,13 @@ public class ExtendedScorer extends Scorer {
 				maxDFS = d;
 			}
 		}
+		if (streamed != null) {
+			maxDFS = Duration.ofNanos(streamed.dfs.percentile(100));
+			maxTSP = Duration.ofNanos(streamed.tsp.percentile(100));
+			report += "\n" + timeDistribution("dfs", streamed.dfs)
+					+ timeDistribution("centrality", streamed.centrality)
+					+ timeDistribution("tsp", streamed.tsp);
+		}
 
 		this.createCsvReportFile();
 		String content = "";
@@ -261,6 +322,12 @@ public class ExtendedScorer extends Scorer {
 		
 	}
 	
+	private static String timeDistribution(String stage, Histogram times) {
+		return stage + " time per sentence (ms): count => " + times.getCount() 
+				+ " p50 => " + String.format("%.1f", times.getP50()) + " p90 => " + String.format("%.1f", times.getP90())
+				+ " max => " + String.format("%.1f", times.getMax()) + "\n";
+	}
+
 	private void createCsvReportFile() {
 		try {
 			File file = new File(Globals.csvReportFile);
@@ -0,0 +1,138 @@
+package evaluation;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Pulls sentences one by one from an evaluation dataset with StAX, without loading the whole document.
+ * Sentences are extracted as InputExtractor.myExtractInput does.
+ */
+public class StreamingInputExtractor implements Iterator<InputSentence>, Closeable {
+	private final InputStream input;
+	private final XMLStreamReader reader;
+	private InputSentence next = null;
+
+	public StreamingInputExtractor(File dataFile) throws IOException, XMLStreamException {
+		this(new BufferedInputStream(new FileInputStream(dataFile)));
+	}
+
+	public StreamingInputExtractor(InputStream input) throws XMLStreamException {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+		// Datasets don't need external entities
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		this.input = input;
+		this.reader = factory.createXMLStreamReader(input);
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (next == null) {
+			try {
+				next = this.readSentence();
+			} catch (XMLStreamException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		return next != null;
+	}
+
+	@Override
+	public InputSentence next() {
+		if (!this.hasNext())
+			throw new NoSuchElementException();
+		InputSentence sentence = next;
+		next = null;
+		return sentence;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			reader.close();
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Move to next <sentence> element and extract it
+	 * @return sentence or null at end of document
+	 * @throws XMLStreamException
+	 */
+	private InputSentence readSentence() throws XMLStreamException {
+		while (reader.hasNext()) {
+			if (reader.next() == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals("sentence")) {
+				return this.extractSentence();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Reader must be on <sentence> start element, stops on its end element
+	 * @return sentence
+	 * @throws XMLStreamException
+	 */
+	private InputSentence extractSentence() throws XMLStreamException {
+		InputSentence sentence = new InputSentence();
+		sentence.instances = new ArrayList<InputInstance>();
+		String sentenceId = this.attribute("id");
+		StringBuilder text = new StringBuilder();
+		int wordIndex = 1;
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				String tag = reader.getLocalName();
+				InputInstance instance = new InputInstance();
+				//if the word has to be disambiguated and evaluated it will have params
+				if (tag.equalsIgnoreCase("instance")) {
+					instance.id = this.attribute("id");
+				//if the word only has to be disambiguated it won't have params
+				} else if (tag.equalsIgnoreCase("wf")) {
+					instance.id = null;
+				} else {
+					instance.id = "";
+				}
+				sentence.sentenceId = sentenceId;
+				instance.lemma = this.attribute("lemma");
+				instance.pos = this.attribute("pos");
+				instance.index = wordIndex;
+				instance.term = reader.getElementText();
+				text.append(instance.term);
+				sentence.instances.add(instance);
+				wordIndex++;
+			} else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+					|| event == XMLStreamConstants.SPACE) {
+				text.append(reader.getText());
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				break;
+			}
+		}
+		sentence.sentence = text.toString();
+		return sentence;
+	}
+
+	/**
+	 * @param name
+	 * @return attribute value, empty string if missing (same as DOM getAttribute)
+	 */
+	private String attribute(String name) {
+		String value = reader.getAttributeValue(null, name);
+		return value == null ? "" : value;
+	}
+}
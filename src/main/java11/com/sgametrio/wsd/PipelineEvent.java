@@ -0,0 +1,29 @@
+package com.sgametrio.wsd;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * Fields of flight recorder events of disambiguation stages (see PipelineEvents)
+ */
+@Category("Word Sense Disambiguation")
+@StackTrace(false)
+abstract class PipelineEvent extends Event {
+	@Label("Sentence")
+	String sentenceId;
+	@Label("Depth")
+	int depth;
+	@Label("Centrality")
+	String centrality;
+	@Label("Vertices")
+	int vertices;
+	@Label("Edges")
+	@Description("Graph edges, distance matrix entries for GTSP instances")
+	long edges;
+	@Label("Exit Status")
+	@Description("Solver exit status: -1 killed at time limit, -2 interrupted, 0 for other stages")
+	int exitStatus;
+}
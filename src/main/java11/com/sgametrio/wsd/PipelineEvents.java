@@ -0,0 +1,80 @@
+package com.sgametrio.wsd;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder events of disambiguation stages. Built only on JDK 11+ (src/main/java11, pom profile jfr-events)
+ * and loaded by name by Tracing, so sources of the project still build and run on Java 8
+ */
+class PipelineEvents implements Tracing.Recorder {
+
+	@Name("com.sgametrio.wsd.Expansion")
+	@Label("DFS Expansion")
+	@Description("addDFSNodes on a sentence graph")
+	static class Expansion extends PipelineEvent {
+	}
+
+	@Name("com.sgametrio.wsd.Centrality")
+	@Label("Centrality")
+	@Description("computeCentrality on an expanded graph")
+	static class Centrality extends PipelineEvent {
+	}
+
+	@Name("com.sgametrio.wsd.InstanceWrite")
+	@Label("GTSP Instance Write")
+	@Description("saveToGTSP of a disambiguation graph")
+	static class InstanceWrite extends PipelineEvent {
+	}
+
+	@Name("com.sgametrio.wsd.Solver")
+	@Label("GTSP Solver")
+	@Description("runSolver: GLKH process")
+	static class Solver extends PipelineEvent {
+	}
+
+	@Name("com.sgametrio.wsd.OutputGeneration")
+	@Label("Output Generation")
+	@Description("generateOutputFile from a tour")
+	static class OutputGeneration extends PipelineEvent {
+	}
+
+	@Override
+	public Object begin(int stage) {
+		PipelineEvent event;
+		switch (stage) {
+			case Tracing.expansion:
+				event = new Expansion();
+				break;
+			case Tracing.centrality:
+				event = new Centrality();
+				break;
+			case Tracing.instanceWrite:
+				event = new InstanceWrite();
+				break;
+			case Tracing.solver:
+				event = new Solver();
+				break;
+			default:
+				event = new OutputGeneration();
+		}
+		event.begin();
+		return event;
+	}
+
+	@Override
+	public void end(Object started, String sentenceId, int depth, String centrality, int vertices, long edges, int exitStatus) {
+		PipelineEvent event = (PipelineEvent) started;
+		event.end();
+		if (event.shouldCommit()) {
+			event.sentenceId = sentenceId;
+			event.depth = depth;
+			event.centrality = centrality;
+			event.vertices = vertices;
+			event.edges = edges;
+			event.exitStatus = exitStatus;
+			event.commit();
+		}
+	}
+}
@@ -0,0 +1,59 @@
+package com.sgametrio.wsd;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+public class EventLoggerTest extends TestCase {
+	private static final String run = "dataset_page-rank_2_run-solver";
+
+	/**
+	 * A shard crashed in session a while disambiguating d000.s001 and was resumed in session b:
+	 * events read for the merge must be those of a single process run
+	 */
+	public void testResumedShardEventsEqualSingleRun() throws IOException {
+		File shard = File.createTempFile("shard", "");
+		shard.delete();
+		String a = shard.getPath() + "/logs/a/";
+		String b = shard.getPath() + "/logs/b/";
+		new File(a).mkdirs();
+		new File(b).mkdirs();
+		write(a + "events_a_0.jsonl", event("d000.s000", "[TIME][TSP] PT1S")
+				+ event("d000.s000", "[SENTENCE TERMS] d000.s000.t000")
+				+ event("d000.s001", "[TIME][TSP] PT2S"));
+		write(b + "events_b_0.jsonl", event("d000.s001", "[TIME][TSP] PT3S")
+				+ event("d000.s001", "[SENTENCE TERMS] d000.s001.t000")
+				+ event("d000.s001_w0", "[TIME][TSP] PT1S"));
+		File journal = new File(shard, "journal.txt");
+		write(journal.getPath(), "# logs " + a + "\nd000.s000\t" + run + "\n# logs " + b + "\nd000.s001\t" + run + "\n");
+
+		EventLogger.includePreviousRuns(ProgressJournal.read(journal.getPath()));
+
+		Map<String, String> single = new HashMap<String, String>();
+		single.put("d000.s000", "[TIME][TSP] PT1S\n[SENTENCE TERMS] d000.s000.t000\n");
+		single.put("d000.s001", "[TIME][TSP] PT3S\n[SENTENCE TERMS] d000.s001.t000\n");
+		assertEquals(single, EventLogger.readMessages(run));
+		assertTrue(EventLogger.readMessages(run + "_ungated").isEmpty());
+	}
+
+	public void testUtf8Length() {
+		assertEquals(3, EventLogger.utf8Length("abc"));
+		assertEquals("citt\u00e0".getBytes(java.nio.charset.StandardCharsets.UTF_8).length, EventLogger.utf8Length("citt\u00e0"));
+		assertEquals(4, EventLogger.utf8Length(new String(Character.toChars(0x1F600))));
+	}
+
+	private static String event(String sentence, String message) {
+		return "{\"time\":\"2017-10-20T10:00:00Z\",\"level\":\"statistics\",\"run\":\"" + run + "\",\"sentence\":\"" + sentence
+				+ "\",\"message\":\"" + message + "\"}\n";
+	}
+
+	private static void write(String file, String content) throws IOException {
+		FileWriter writer = new FileWriter(file);
+		writer.write(content);
+		writer.close();
+	}
+}
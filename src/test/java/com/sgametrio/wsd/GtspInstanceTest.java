@@ -0,0 +1,97 @@
+package com.sgametrio.wsd;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class GtspInstanceTest extends TestCase {
+	private static final int P = 1000;
+
+	/**
+	 * Two clusters {0, 1} and {2, 3}: 1 is dominated by 0, 2 and 3 are not comparable
+	 */
+	private static final int[] dominated = {
+		P, P, 10, 5,
+		P, P, 15, 25,
+		10, 15, P, P,
+		5, 25, P, P,
+	};
+
+	public void testDominatedSenseIsRemoved() {
+		GtspInstance instance = instance(new int[] {2, 2}, dominated, 0.0, 0.0, 0.0, 0.0);
+		GtspInstance reduced = instance.reduce(true, 0);
+		assertEquals(3, reduced.size());
+		assertTrue(Arrays.equals(new int[] {1, 2}, reduced.getClusterSizes()));
+		assertSame(instance.getVertex(0), reduced.getVertex(0));
+		assertSame(instance.getVertex(2), reduced.getVertex(1));
+		assertSame(instance.getVertex(3), reduced.getVertex(2));
+		// Distances between kept vertexes are unchanged
+		int[] kept = {0, 2, 3};
+		for (int i = 0; i < kept.length; i++) {
+			for (int j = 0; j < kept.length; j++) {
+				assertEquals(instance.distance(kept[i], kept[j]), reduced.distance(i, j));
+			}
+		}
+	}
+
+	public void testFirstDuplicateIsKept() {
+		int[] distances = {
+			P, P, 10, 20,
+			P, P, 10, 20,
+			10, 10, P, P,
+			20, 20, P, P,
+		};
+		GtspInstance instance = instance(new int[] {2, 2}, distances, 0.0, 0.0, 0.0, 0.0);
+		GtspInstance reduced = instance.reduce(true, 0);
+		// 1 is a duplicate of 0, 3 is dominated by 2
+		assertEquals(2, reduced.size());
+		assertSame(instance.getVertex(0), reduced.getVertex(0));
+		assertSame(instance.getVertex(2), reduced.getVertex(1));
+	}
+
+	public void testNothingToRemoveReturnsSameInstance() {
+		int[] distances = {
+			P, P, 10, 20,
+			P, P, 20, 10,
+			10, 20, P, P,
+			20, 10, P, P,
+		};
+		GtspInstance incomparable = instance(new int[] {2, 2}, distances, 0.0, 0.0, 0.0, 0.0);
+		assertSame(incomparable, incomparable.reduce(true, 0));
+		GtspInstance instance = instance(new int[] {2, 2}, dominated, 0.0, 0.0, 0.0, 0.0);
+		assertSame(instance, instance.reduce(false, 0));
+	}
+
+	public void testTourOnReducedInstanceMapsToSameNodes() {
+		GtspInstance instance = instance(new int[] {2, 2}, dominated, 0.0, 0.0, 0.0, 0.0);
+		GtspInstance reduced = instance.reduce(true, 0);
+		// 1-based vertexes 1 and 3 of reduced instance are vertexes 1 and 4 of instance
+		int[] tour = {1, 3};
+		assertSame(instance.getVertex(0), reduced.getVertex(tour[0] - 1));
+		assertSame(instance.getVertex(3), reduced.getVertex(tour[1] - 1));
+		assertEquals(instance.tourLength(new int[] {1, 4}), reduced.tourLength(tour));
+	}
+
+	public void testMaxPerClusterKeepsHighestCentralityLowestIndexOnTies() {
+		int[] distances = new int[25];
+		Arrays.fill(distances, 10);
+		GtspInstance instance = instance(new int[] {4, 1}, distances, 0.2, 0.5, 0.9, 0.5, 0.0);
+		GtspInstance reduced = instance.reduce(false, 2);
+		assertTrue(Arrays.equals(new int[] {2, 1}, reduced.getClusterSizes()));
+		// 0.9 (index 2) and the first 0.5 (index 1), vertex order is kept
+		assertSame(instance.getVertex(1), reduced.getVertex(0));
+		assertSame(instance.getVertex(2), reduced.getVertex(1));
+		assertSame(instance.getVertex(4), reduced.getVertex(2));
+	}
+
+	private static GtspInstance instance(int[] clusterSizes, int[] distances, double... centralities) {
+		ArrayList<JNode> vertices = new ArrayList<JNode>();
+		for (double centrality : centralities) {
+			JNode n = new JNode();
+			n.setCentrality(centrality);
+			vertices.add(n);
+		}
+		return new GtspInstance(vertices, clusterSizes, distances);
+	}
+}
@@ -0,0 +1,112 @@
+package com.sgametrio.wsd;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+public class KeyFileSinkTest extends TestCase {
+	private File directory;
+	private KeyFileSink sink;
+	private File keyFile;
+
+	@Override
+	protected void setUp() throws IOException {
+		directory = File.createTempFile("results", "");
+		directory.delete();
+		directory.mkdirs();
+		sink = new KeyFileSink(directory.getPath() + File.separator, "dataset");
+		keyFile = new File(sink.getFile(result("d000.s000")));
+	}
+
+	@Override
+	protected void tearDown() {
+		for (File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	public void testFileIsSortedBySentence() throws IOException {
+		sink.accept(result("d000.s002"));
+		sink.accept(result("d000.s000"));
+		sink.accept(result("d001.s000"));
+		sink.accept(result("d000.s001"));
+		sink.close();
+		List<String> lines = read(keyFile);
+		assertEquals(8, lines.size());
+		assertEquals("d000.s000.t000 d000.s000.t000%1", lines.get(0));
+		assertEquals("d000.s000.t001 d000.s000.t001%1", lines.get(1));
+		assertEquals("d000.s001.t000 d000.s001.t000%1", lines.get(2));
+		assertEquals("d000.s002.t000 d000.s002.t000%1", lines.get(4));
+		assertEquals("d001.s000.t001 d001.s000.t001%1", lines.get(7));
+		assertFalse(new File(keyFile.getPath() + ".tmp").exists());
+	}
+
+	public void testResumedFileKeepsItsHead() throws IOException {
+		// Results of a previous run, already trimmed to journaled units
+		FileWriter previous = new FileWriter(keyFile);
+		previous.write("d000.s003.t000 x%1\nd000.s001.t000 y%1\n");
+		previous.close();
+		sink.accept(result("d000.s002"));
+		sink.accept(result("d000.s000"));
+		sink.close();
+		List<String> lines = read(keyFile);
+		assertEquals(6, lines.size());
+		assertEquals("d000.s003.t000 x%1", lines.get(0));
+		assertEquals("d000.s001.t000 y%1", lines.get(1));
+		assertEquals("d000.s000.t000 d000.s000.t000%1", lines.get(2));
+		assertEquals("d000.s000.t001 d000.s000.t001%1", lines.get(3));
+		assertEquals("d000.s002.t000 d000.s002.t000%1", lines.get(4));
+		assertEquals("d000.s002.t001 d000.s002.t001%1", lines.get(5));
+	}
+
+	public void testResultsAfterCloseAreNotWritten() throws IOException {
+		sink.accept(result("d000.s000"));
+		sink.close();
+		sink.accept(result("d000.s001"));
+		sink.close();
+		assertEquals(2, read(keyFile).size());
+	}
+
+	/**
+	 * @param sentenceId
+	 * @return by centrality result of two instances, sense key of every instance is <instance id>%1
+	 */
+	private static DisambiguationResult result(String sentenceId) {
+		Map<Integer, JNode> senses = new HashMap<Integer, JNode>();
+		for (int i = 0; i < 2; i++) {
+			final String termId = sentenceId + ".t00" + i;
+			JNode sense = new JNode() {
+				@Override
+				public String getSenseKey() {
+					return termId + "%1";
+				}
+			};
+			sense.setTermId(termId);
+			sense.setSentenceIndex(i);
+			senses.put(i, sense);
+		}
+		return new DisambiguationResult(sentenceId, 2, "page-rank", Globals.byCentralityMethod, senses,
+				Duration.ZERO, Duration.ZERO, Duration.ZERO);
+	}
+
+	private static List<String> read(File file) throws IOException {
+		List<String> lines = new ArrayList<String>();
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+		String line;
+		while ((line = reader.readLine()) != null) {
+			lines.add(line);
+		}
+		reader.close();
+		return lines;
+	}
+}
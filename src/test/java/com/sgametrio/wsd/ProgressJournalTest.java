@@ -0,0 +1,83 @@
+package com.sgametrio.wsd;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class ProgressJournalTest extends TestCase {
+	private static final String run = "dataset_page-rank_2_run-solver";
+	private File journalFile;
+	private File keyFile;
+
+	@Override
+	protected void setUp() throws IOException {
+		journalFile = File.createTempFile("journal", ".txt");
+		keyFile = new File(journalFile.getParentFile(), run + Globals.resultsExt);
+	}
+
+	@Override
+	protected void tearDown() {
+		journalFile.delete();
+		keyFile.delete();
+	}
+
+	public void testTrimKeepsOnlyJournaledUnits() throws IOException {
+		write(journalFile, "# logs logs/a/\nd000.s000\t" + run + "\nd000.s002\t" + run + "\n");
+		write(keyFile, "d000.s000.t000 a%1:01:00::\n"
+				+ "d000.s000.t001 b%1:01:00::\n"
+				+ "d000.s001.t000 c%1:01:00::\n"
+				+ "d000.s002.t000 d%1:01:00::\n"
+				+ "d000.s003.t0");
+		ProgressJournal journal = ProgressJournal.read(journalFile.getPath());
+		assertEquals(2, journal.trim(keyFile));
+		List<String> lines = read(keyFile);
+		assertEquals(3, lines.size());
+		assertEquals("d000.s000.t000 a%1:01:00::", lines.get(0));
+		assertEquals("d000.s000.t001 b%1:01:00::", lines.get(1));
+		assertEquals("d000.s002.t000 d%1:01:00::", lines.get(2));
+		assertFalse(new File(keyFile.getPath() + ".tmp").exists());
+	}
+
+	public void testTrimIgnoresUnitsOfOtherRuns() throws IOException {
+		write(journalFile, "# logs logs/a/\nd000.s000\tdataset_page-rank_2_by-centrality\n");
+		write(keyFile, "d000.s000.t000 a%1:01:00::\n");
+		assertEquals(1, ProgressJournal.read(journalFile.getPath()).trim(keyFile));
+		assertEquals(0, read(keyFile).size());
+	}
+
+	public void testUnitsBelongToSessionThatJournaledThem() throws IOException {
+		// Session a crashed before journaling d000.s001, session b redid it
+		write(journalFile, "# logs logs/a/\nd000.s000\t" + run + "\nd000.s0"
+				+ "\n# logs logs/b/\nd000.s001\t" + run + "\n");
+		ProgressJournal journal = ProgressJournal.read(journalFile.getPath());
+		assertEquals(2, journal.size());
+		assertEquals("logs/a/", journal.getSession("d000.s000", run));
+		assertEquals("logs/b/", journal.getSession("d000.s001", run));
+		assertNull(journal.getSession("d000.s002", run));
+		assertTrue(journal.isResumed("d000.s001", run));
+		assertEquals(2, journal.getPreviousLogs().size());
+	}
+
+	private static void write(File file, String content) throws IOException {
+		FileWriter writer = new FileWriter(file);
+		writer.write(content);
+		writer.close();
+	}
+
+	private static List<String> read(File file) throws IOException {
+		List<String> lines = new ArrayList<String>();
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+		String line;
+		while ((line = reader.readLine()) != null) {
+			lines.add(line);
+		}
+		reader.close();
+		return lines;
+	}
+}
@@ -0,0 +1,83 @@
+package com.sgametrio.wsd;
+
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class SentenceWindowsTest extends TestCase {
+	private int threshold;
+	private int size;
+	private int overlap;
+
+	@Override
+	protected void setUp() {
+		threshold = Globals.windowThreshold;
+		size = Globals.windowSize;
+		overlap = Globals.windowOverlap;
+		Globals.windowThreshold = 20;
+		Globals.windowSize = 16;
+		Globals.windowOverlap = 4;
+	}
+
+	@Override
+	protected void tearDown() {
+		Globals.windowThreshold = threshold;
+		Globals.windowSize = size;
+		Globals.windowOverlap = overlap;
+	}
+
+	public void testShortSentenceIsOneWindow() {
+		assertSpans(SentenceWindows.split(20), 0, 20);
+		assertSpans(SentenceWindows.split(0), 0, 0);
+		Globals.windowThreshold = 0;
+		assertSpans(SentenceWindows.split(100), 0, 100);
+	}
+
+	public void testWindowsCoverSentenceWithOverlap() {
+		assertSpans(SentenceWindows.split(21), 0, 16, 5, 21);
+		assertSpans(SentenceWindows.split(40), 0, 16, 12, 28, 24, 40);
+		for (int instances = 21; instances < 200; instances++) {
+			List<int[]> windows = SentenceWindows.split(instances);
+			assertEquals(0, windows.get(0)[0]);
+			assertEquals(instances, windows.get(windows.size() - 1)[1]);
+			for (int w = 0; w < windows.size(); w++) {
+				assertEquals(Globals.windowSize, windows.get(w)[1] - windows.get(w)[0]);
+				if (w > 0) {
+					assertTrue("overlap of window " + w + " of " + instances, windows.get(w - 1)[1] - windows.get(w)[0] >= Globals.windowOverlap);
+				}
+			}
+		}
+	}
+
+	public void testOwnerIsWindowWhereInstanceIsFarthestFromBorders() {
+		List<int[]> windows = SentenceWindows.split(40);
+		int[] owners = SentenceWindows.owners(windows, 40);
+		// 13 is 2 from the end of [0,16) and 1 from the start of [12,28)
+		assertEquals(0, owners[13]);
+		assertEquals(1, owners[14]);
+		assertEquals(1, owners[25]);
+		assertEquals(2, owners[26]);
+		assertEquals(0, owners[0]);
+		assertEquals(2, owners[39]);
+	}
+
+	public void testOwnerTieGoesToFirstWindow() {
+		List<int[]> windows = SentenceWindows.split(21);
+		int[] owners = SentenceWindows.owners(windows, 21);
+		// 10 is 5 from the border of both [0,16) and [5,21)
+		assertEquals(0, owners[10]);
+		assertEquals(1, owners[11]);
+		int[] expected = new int[21];
+		Arrays.fill(expected, 11, 21, 1);
+		assertTrue(Arrays.equals(expected, owners));
+	}
+
+	private static void assertSpans(List<int[]> windows, int... spans) {
+		assertEquals(spans.length / 2, windows.size());
+		for (int w = 0; w < windows.size(); w++) {
+			assertEquals(spans[2 * w], windows.get(w)[0]);
+			assertEquals(spans[2 * w + 1], windows.get(w)[1]);
+		}
+	}
+}